@@ -0,0 +1,44 @@
+package dev.anthonyashco.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Generates the csv extracts the benchmarks run against. Files are cached in the temp directory by row count, so
+ * each fork doesn't have to regenerate a 10M row file.
+ */
+public class BenchmarkData {
+    public static final String[] HEADERS = {"acct_id", "region", "lob", "segment_nm", "status", "balance", "open_dt"};
+    private static final String[] REGIONS = {"NA", "EU", "APAC", "LATAM"};
+    private static final String[] LOBS = {"Custody", "Treasury", "Clearing", "Markets", "Wealth"};
+    private static final String[] STATUSES = {"A", "I", "C"};
+
+    public static Path csvFile(int rows) throws IOException {
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "database-automation-benchmarks");
+        Files.createDirectories(dir);
+        Path file = dir.resolve("extract_" + rows + ".csv");
+        if (Files.exists(file)) return file;
+
+        Path partial = dir.resolve("extract_" + rows + ".csv.tmp");
+        try (BufferedWriter bfw = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+            bfw.write(String.join(",", HEADERS));
+            bfw.newLine();
+            for (int i = 0; i < rows; i++) {
+                bfw.write(row(i));
+                bfw.newLine();
+            }
+        }
+        Files.move(partial, file);
+        return file;
+    }
+
+    public static String row(int i) {
+        return String.format("%010d,%s,%s,Segment %d,%s,%d.%02d,2022-%02d-%02d",
+                5_000_000_000L + i, REGIONS[i % REGIONS.length], LOBS[i % LOBS.length], i % 97,
+                STATUSES[i % STATUSES.length], i % 100_000, i % 100, i % 12 + 1, i % 28 + 1);
+    }
+}
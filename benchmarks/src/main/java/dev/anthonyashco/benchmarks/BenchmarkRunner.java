@@ -0,0 +1,25 @@
+package dev.anthonyashco.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler (allocation rate) and the heap high-water mark profiler always attached,
+ * alongside the throughput each benchmark reports. Accepts the usual JMH command line, e.g. a benchmark regex or
+ * -p rows=10000 to narrow a run.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .addProfiler(HeapHighWaterProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,41 @@
+package dev.anthonyashco.benchmarks;
+
+import dev.anthonyashco.textutilities.CsvConverter;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks transcribing a csv extract into a new workbook sheet, in both orientations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CsvConverterBenchmark {
+    // Inverted sheets get one column per record, and Excel stops at 16384 columns.
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean invertAxis;
+
+    private Path inputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        inputFile = BenchmarkData.csvFile(rows);
+    }
+
+    @Benchmark
+    public XSSFWorkbook toXlsx() {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        CsvConverter.toXlsx(workbook, inputFile, "extract", invertAxis);
+        return workbook;
+    }
+}
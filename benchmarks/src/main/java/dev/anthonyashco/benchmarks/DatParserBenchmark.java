@@ -0,0 +1,45 @@
+package dev.anthonyashco.benchmarks;
+
+import dev.anthonyashco.textutilities.DatParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks DatParser extraction and validation over generated extracts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class DatParserBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private DatParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        parser = new DatParser(BenchmarkData.csvFile(rows));
+    }
+
+    @Benchmark
+    public Map<String, Map<String, String>> extract() throws IOException {
+        return parser.extract("acct_id", "region", "lob", "segment_nm");
+    }
+
+    @Benchmark
+    public Map<String, Map<String, String>> extractComposite() throws IOException {
+        return parser.extractComposite("acct_id,region", "lob", "segment_nm");
+    }
+
+    @Benchmark
+    public List<String> verifyDatFieldDataIsValid() throws IOException {
+        return parser.verifyDatFieldDataIsValid("status", "A", "I");
+    }
+}
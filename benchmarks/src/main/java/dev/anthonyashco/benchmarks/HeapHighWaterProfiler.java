@@ -0,0 +1,52 @@
+package dev.anthonyashco.benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reports the heap high-water mark of each iteration, taken as the sum of the peak usage of every heap pool. The
+ * peaks are reset before each iteration so the figure only covers the code being measured.
+ */
+public class HeapHighWaterProfiler implements InternalProfiler {
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+
+    public HeapHighWaterProfiler() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Heap high-water mark per iteration";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        for (MemoryPoolMXBean pool : heapPools) pool.resetPeakUsage();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) peak += pool.getPeakUsage().getUsed();
+        return Collections.singletonList(
+                new ScalarResult("heap.hwm", peak / (1024.0 * 1024.0), "MB", AggregationPolicy.MAX));
+    }
+}
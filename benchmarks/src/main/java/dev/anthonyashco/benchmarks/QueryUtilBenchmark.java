@@ -0,0 +1,80 @@
+package dev.anthonyashco.benchmarks;
+
+import dev.anthonyashco.sqlserver.QueryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks QueryUtil.executeToCsv against an in-memory H2 database standing in for SQL Server. QueryUtil is pointed
+ * at a temporary resources directory, so nothing is written into the working directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class QueryUtilBenchmark {
+    private static final String CONNECTION_STRING = "jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1";
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private Connection keepAlive;
+    private QueryUtil queryUtil;
+    private Path resources;
+    private Path sqlFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        resources = Files.createTempDirectory("queryutil-benchmark");
+        System.setProperty("dev.anthonyashco.resources", resources.toString());
+        Path sqlInput = Files.createDirectories(resources.resolve("sqlqueries"));
+        sqlFile = sqlInput.resolve("benchmark_extract.sql");
+        Files.write(sqlFile, "select * from extract where status <> ?".getBytes(StandardCharsets.UTF_8));
+
+        keepAlive = DriverManager.getConnection(CONNECTION_STRING);
+        try (Statement st = keepAlive.createStatement()) {
+            st.execute("drop table if exists extract");
+            st.execute("create table extract (acct_id bigint primary key, region varchar(8), lob varchar(16), "
+                    + "segment_nm varchar(32), status char(1), balance decimal(12, 2), open_dt date, closed_dt date)");
+            st.execute("insert into extract select 5000000000 + x, "
+                    + "case mod(x, 4) when 0 then 'NA' when 1 then 'EU' when 2 then 'APAC' else 'LATAM' end, "
+                    + "'Custody', 'Segment ' || mod(x, 97), "
+                    + "case mod(x, 3) when 0 then 'A' when 1 then 'I' else 'C' end, "
+                    + "mod(x, 100000) + mod(x, 100) / 100.0, dateadd('DAY', mod(x, 365), date '2022-01-01'), "
+                    + "case when mod(x, 5) = 0 then date '2023-01-01' end "
+                    + "from system_range(1, " + rows + ")");
+        }
+        queryUtil = new QueryUtil(CONNECTION_STRING);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, SQLException {
+        queryUtil.close();
+        keepAlive.close();
+        try (Stream<Path> paths = Files.walk(resources)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) Files.delete(path);
+        }
+    }
+
+    @Benchmark
+    public void executeToCsv() throws IOException, SQLException {
+        try (PreparedStatement ps = queryUtil.getStatement(sqlFile, "C")) {
+            queryUtil.executeToCsv(ps, "benchmark_extract", "csv");
+        }
+    }
+}
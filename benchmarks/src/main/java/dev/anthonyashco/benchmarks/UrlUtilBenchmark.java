@@ -0,0 +1,114 @@
+package dev.anthonyashco.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.anthonyashco.exceptions.HTTPException;
+import dev.anthonyashco.jirautilities.UrlUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks UrlUtil round trips against an in-process HTTP server serving canned ZAPI-shaped responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+// Without nodelay the JDK server's small writes hit delayed ACKs and every round trip costs ~40ms.
+@Fork(value = 1, jvmArgsAppend = {"-Dsun.net.httpserver.nodelay=true"})
+public class UrlUtilBenchmark {
+    @Param({"10", "1000", "10000"})
+    public int records;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private UrlUtil url;
+    private byte[] cycles;
+    private byte[] executions;
+    private Path uploadFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < records; i++) {
+            sb.append(String.format("\"%d\":{\"name\":\"Cycle %d\",\"description\":\"Regression cycle\",\"totalExecutions\":%d},", i, i, i));
+        }
+        cycles = sb.append("\"recordsCount\":").append(records).append('}').toString().getBytes(StandardCharsets.UTF_8);
+
+        sb = new StringBuilder("{\"executions\":[");
+        for (int i = 0; i < records; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(String.format("{\"id\":%d,\"issueKey\":\"PROJ-%d\",\"executionStatus\":\"1\",\"comment\":\"\"}", i, i));
+        }
+        executions = sb.append("],\"recordsCount\":").append(records).append('}').toString().getBytes(StandardCharsets.UTF_8);
+
+        uploadFile = BenchmarkData.csvFile(records);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.createContext("/cycles", exchange -> respond(exchange, cycles));
+        server.createContext("/executions", exchange -> respond(exchange, executions));
+        server.createContext("/attachment", exchange -> {
+            try (InputStream is = exchange.getRequestBody()) {
+                byte[] buffer = new byte[64 * 1024];
+                while (is.read(buffer) != -1) {
+                    // Drain the upload.
+                }
+            }
+            respond(exchange, "{\"success\":\"File successfully uploaded\"}".getBytes(StandardCharsets.UTF_8));
+        });
+        server.start();
+        url = new UrlUtil("http://localhost:" + server.getAddress().getPort() + "/", "YmVuY2g6YmVuY2g=");
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdown();
+    }
+
+    @Benchmark
+    public JsonObject getJson() throws IOException, HTTPException {
+        return url.getJson("cycles");
+    }
+
+    @Benchmark
+    public String streamJsonFirstMatch() throws IOException, HTTPException {
+        return url.streamJson("cycles", reader -> {
+            reader.beginObject();
+            String key = reader.nextName();
+            return key + ":" + UrlUtil.readStringField(reader, "name");
+        });
+    }
+
+    @Benchmark
+    public String streamPagedFirstId() throws IOException, HTTPException {
+        return url.streamPaged("executions", "executions", 100, reader -> UrlUtil.readStringField(reader, "id"));
+    }
+
+    @Benchmark
+    public JsonObject postFile() throws IOException, HTTPException {
+        return url.postFile("attachment", uploadFile.toFile(), "text/csv");
+    }
+}
@@ -0,0 +1,43 @@
+package dev.anthonyashco.benchmarks;
+
+import dev.anthonyashco.textutilities.CsvConverter;
+import dev.anthonyashco.textutilities.XlsxUtility;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reading a field mapping back out of a workbook sheet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class XlsxUtilityBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private Workbook workbook;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workbook = new XSSFWorkbook();
+        CsvConverter.toXlsx(workbook, BenchmarkData.csvFile(rows), "mapping", false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public Map<String, Map<String, String>> getFieldMapping() {
+        return XlsxUtility.getFieldMapping(workbook, "mapping");
+    }
+}
@@ -0,0 +1,261 @@
+package dev.anthonyashco.jirautilities;
+
+import dev.anthonyashco.exceptions.HTTPException;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonToken;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * AttachmentUploader uploads execution reports concurrently, skipping any report whose content is already attached
+ * to the target execution.
+ * <p>
+ * Jira doesn't expose a content hash for attachments, so uploaded files are named with a short SHA-256 tag of their
+ * contents (e.g. report.1a2b3c4d5e6f.csv) and existing attachments are matched on that tag.
+ */
+public class AttachmentUploader implements Closeable {
+    private static final MediaType ZIP = MediaType.parse("application/zip");
+    private static final List<String> TEXT_EXTENSIONS = Arrays.asList("csv", "dat", "txt", "json", "xml", "sql");
+    private static final int HASH_TAG_LENGTH = 12;
+
+    private final UrlUtil url;
+    private final ExecutorService executor;
+    private final Semaphore inFlightKb;
+    private final int maxInFlightKb;
+    private final Map<String, String> hashCache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private volatile boolean compressText = false;
+
+    /**
+     * @param threads The maximum number of uploads to run at once.
+     * @param maxInFlightBytes The maximum total size of the files being uploaded at once. A single file larger than
+     *                         this is still uploaded, just on its own.
+     */
+    public AttachmentUploader(UrlUtil url, int threads, long maxInFlightBytes) {
+        this.url = url;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.maxInFlightKb = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxInFlightBytes / 1024));
+        this.inFlightKb = new Semaphore(maxInFlightKb, true);
+    }
+
+    /**
+     * If set to true, text reports (csv, dat, txt and the like) are zipped on the fly as they are uploaded.
+     */
+    public void setCompressText(boolean compressText) {
+        this.compressText = compressText;
+    }
+
+    /**
+     * Queues a report to be attached to a Jira execution.
+     *
+     * @param fileMimeType The mime type of the uploaded file. Ignored for text reports when compression is on.
+     * @return A future that completes with true once the report is attached, or false if identical content was
+     * already attached.
+     */
+    public CompletableFuture<Boolean> attach(String executionId, Path reportPath, String fileMimeType) {
+        return attach(executionId, reportPath, fileMimeType, null);
+    }
+
+    /**
+     * @param tag The report's content tag, or null to have the upload task work it out.
+     */
+    private CompletableFuture<Boolean> attach(String executionId, Path reportPath, String fileMimeType, String tag) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(upload(executionId, reportPath, fileMimeType, (tag == null) ? hashTag(reportPath) : tag));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Attaches the same report to many executions concurrently. The report is hashed once, before any upload is
+     * queued, and executions that already carry it are skipped.
+     *
+     * @return Whether each execution's upload happened, keyed by execution ID.
+     */
+    public Map<String, Boolean> attachAll(Collection<String> executionIds, Path reportPath, String fileMimeType) throws HTTPException, IOException {
+        String tag = hashTag(reportPath);
+        Map<String, CompletableFuture<Boolean>> futures = new LinkedHashMap<>();
+        for (String executionId : executionIds) futures.put(executionId, attach(executionId, reportPath, fileMimeType, tag));
+
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<Boolean>> entry : futures.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while uploading attachments.", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof HTTPException) throw (HTTPException) cause;
+                if (cause instanceof IOException) throw (IOException) cause;
+                throw new IOException(cause);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Uploads the report unless the execution already carries it. If the same report is already being uploaded to the
+     * same execution, waits for that upload instead, and only tries again if it failed.
+     */
+    private boolean upload(String executionId, Path reportPath, String fileMimeType, String tag) throws HTTPException, IOException, InterruptedException {
+        String key = executionId + "|" + tag;
+        while (true) {
+            CompletableFuture<Boolean> pending = new CompletableFuture<>();
+            CompletableFuture<Boolean> earlier = inFlight.putIfAbsent(key, pending);
+            if (earlier == null) {
+                try {
+                    boolean uploaded = !isAttached(executionId, tag) && send(executionId, reportPath, fileMimeType, tag);
+                    pending.complete(uploaded);
+                    return uploaded;
+                } catch (Exception e) {
+                    pending.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, pending);
+                }
+            }
+            try {
+                earlier.get();
+                return false;
+            } catch (ExecutionException e) {
+                // The earlier upload failed, so this one takes its turn.
+            }
+        }
+    }
+
+    private boolean send(String executionId, Path reportPath, String fileMimeType, String tag) throws HTTPException, IOException, InterruptedException {
+        String fileName = reportPath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = (dot > 0) ? fileName.substring(0, dot) : fileName;
+        String extension = (dot > 0) ? fileName.substring(dot + 1) : "";
+        String taggedName = baseName + "." + tag + (extension.isEmpty() ? "" : "." + extension);
+
+        RequestBody body;
+        String uploadName;
+        if (compressText && TEXT_EXTENSIONS.contains(extension.toLowerCase(Locale.ROOT))) {
+            body = zippedBody(reportPath, taggedName);
+            uploadName = taggedName + ".zip";
+        } else {
+            body = RequestBody.create(reportPath.toFile(), MediaType.parse(fileMimeType));
+            uploadName = taggedName;
+        }
+
+        int permits = (int) Math.max(1, Math.min(maxInFlightKb, (Files.size(reportPath) + 1023) / 1024));
+        inFlightKb.acquire(permits);
+        try {
+            JsonObject json = url.postFile("rest/zapi/latest/attachment?entityId=" + executionId + "&entityType=Execution", uploadName, body);
+            String success = json.get("success").getAsString();
+            if (success.contains("successfully uploaded")) return true;
+            else throw new HTTPException("File upload failed.");
+        } finally {
+            inFlightKb.release(permits);
+        }
+    }
+
+    /**
+     * Checks whether an execution already has an attachment carrying the given content tag.
+     */
+    private boolean isAttached(String executionId, String tag) throws HTTPException, IOException {
+        String marker = "." + tag;
+        Boolean found = url.streamJson("rest/zapi/latest/attachment/attachmentsByEntity?entityId=" + executionId
+                + "&entityType=Execution", reader -> {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        String fileName = UrlUtil.readStringField(reader, "fileName");
+                        if (fileName != null && fileName.contains(marker)) return true;
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return false;
+        });
+        return found;
+    }
+
+    /**
+     * Returns the leading hex digits of the file's SHA-256, reading it from disk at most once per modification, even
+     * when several uploads ask for it at the same time.
+     */
+    private String hashTag(Path reportPath) throws IOException {
+        String key = reportPath.toAbsolutePath() + "|" + Files.size(reportPath) + "|" + Files.getLastModifiedTime(reportPath).toMillis();
+        try {
+            return hashCache.computeIfAbsent(key, k -> {
+                try {
+                    return digest(reportPath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String digest(Path reportPath) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream is = new DigestInputStream(Files.newInputStream(reportPath), digest)) {
+            while (is.read(buffer) != -1) {
+                // Reading is enough to update the digest.
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+        return hex.substring(0, HASH_TAG_LENGTH);
+    }
+
+    /**
+     * A request body that zips the file as it is written to the connection, so neither the raw nor the compressed
+     * report is ever held in memory or written back to disk.
+     */
+    private static RequestBody zippedBody(Path reportPath, String entryName) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return ZIP;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                ZipOutputStream zos = new ZipOutputStream(sink.outputStream());
+                zos.putNextEntry(new ZipEntry(entryName));
+                Files.copy(reportPath, zos);
+                zos.closeEntry();
+                zos.finish();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -2,17 +2,21 @@ package dev.anthonyashco.jirautilities;
 
 import dev.anthonyashco.exceptions.HTTPException;
 import com.google.gson.*;
+import com.google.gson.stream.JsonToken;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 /**
  * JiraUtil is a utility class for handling common Jira API tasks.
  */
 public class JiraUtil {
+    private static final int EXECUTION_PAGE_SIZE = 100;
     private final Properties prop;
     private final String projectId;
     private final UrlUtil url;
@@ -107,15 +111,21 @@ public class JiraUtil {
      */
     public String getCycleId(String cycleName) throws HTTPException, IOException {
         if (versionId == null) throw new NullPointerException("Version ID is not set.");
-        JsonObject json = url.getJson("rest/zapi/latest/cycle?projectId=" + projectId +
-                "&versionId=" + versionId);
-        for (String keyString : json.keySet()) {
-            Object keyValue = json.get(keyString);
-            if (keyValue instanceof JsonObject) {
-                String name = ((JsonObject) keyValue).get("name").getAsString();
-                if (name.equalsIgnoreCase(cycleName)) return (cycleId = keyString);
+        String foundId = url.streamJson("rest/zapi/latest/cycle?projectId=" + projectId +
+                "&versionId=" + versionId, reader -> {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String keyString = reader.nextName();
+                if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    String name = UrlUtil.readStringField(reader, "name");
+                    if (cycleName.equalsIgnoreCase(name)) return keyString;
+                } else {
+                    reader.skipValue();
+                }
             }
-        }
+            return null;
+        });
+        if (foundId != null) return (cycleId = foundId);
         throw new JsonParseException(String.format("Cycle name %s not found.", cycleName));
     }
 
@@ -134,9 +144,39 @@ public class JiraUtil {
     public String getExecutionId(String issueName) throws HTTPException, IOException {
         if (versionId == null || cycleId == null)
             throw new NullPointerException("Version ID and Cycle ID must both be set.");
-        JsonObject json = url.getJson("rest/zapi/latest/execution?cycleId=" + cycleId
-                + "&projectId=" + projectId + "&versionId=" + versionId + "&issueId=" + getIssueId(issueName));
-        return json.get("executions").getAsJsonArray().get(0).getAsJsonObject().get("id").getAsString();
+        String executionId = url.streamPaged("rest/zapi/latest/execution?cycleId=" + cycleId
+                        + "&projectId=" + projectId + "&versionId=" + versionId + "&issueId=" + getIssueId(issueName),
+                "executions", EXECUTION_PAGE_SIZE, reader -> UrlUtil.readStringField(reader, "id"));
+        if (executionId == null) throw new JsonParseException(String.format("Execution for %s not found.", issueName));
+        return executionId;
+    }
+
+    /**
+     * Gets every Jira execution ID in the current cycle, keyed by issue name, paging through the listing as needed.
+     * Cheaper than calling {@link #getExecutionId(String) getExecutionId} once per issue for large cycles.
+     * Requires versionId and cycleId to be set first.
+     */
+    public Map<String, String> getExecutionIds() throws HTTPException, IOException {
+        if (versionId == null || cycleId == null)
+            throw new NullPointerException("Version ID and Cycle ID must both be set.");
+        Map<String, String> executionIds = new HashMap<>();
+        url.streamPaged("rest/zapi/latest/execution?cycleId=" + cycleId + "&projectId=" + projectId
+                + "&versionId=" + versionId, "executions", EXECUTION_PAGE_SIZE, reader -> {
+            String id = null;
+            String issueKey = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+                if (name.equals("id") && token != JsonToken.NULL) id = reader.nextString();
+                else if (name.equals("issueKey") && token != JsonToken.NULL) issueKey = reader.nextString();
+                else reader.skipValue();
+            }
+            reader.endObject();
+            if (id != null && issueKey != null) executionIds.put(issueKey, id);
+            return null;
+        });
+        return executionIds;
     }
 
     /**
@@ -215,6 +255,17 @@ public class JiraUtil {
         else throw new HTTPException("File upload failed.");
     }
 
+    /**
+     * Creates an uploader for attaching reports to many executions at once, skipping reports that are already
+     * attached. Close it once all uploads have completed.
+     *
+     * @param threads The maximum number of uploads to run at once.
+     * @param maxInFlightBytes The maximum total size of the files being uploaded at once.
+     */
+    public AttachmentUploader newAttachmentUploader(int threads, long maxInFlightBytes) {
+        return new AttachmentUploader(url, threads, maxInFlightBytes);
+    }
+
     /**
      * Executes a Jira test execution, updating the execution status and uploading a file.
      *
@@ -0,0 +1,14 @@
+package dev.anthonyashco.jirautilities;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * JsonStreamHandler reads what it needs from a streamed Jira response.
+ * Returning a non-null value from a paged listing stops the paging early.
+ */
+@FunctionalInterface
+public interface JsonStreamHandler<T> {
+    T handle(JsonReader reader) throws IOException;
+}
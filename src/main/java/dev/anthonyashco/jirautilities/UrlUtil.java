@@ -1,16 +1,27 @@
 package dev.anthonyashco.jirautilities;
 
 import dev.anthonyashco.exceptions.HTTPException;
+import dev.anthonyashco.metrics.HttpEvent;
+import dev.anthonyashco.metrics.Metrics;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import okhttp3.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
 
 public class UrlUtil {
+    private static final Logger logger = LogManager.getLogger(UrlUtil.class);
+    private static final OkHttpClient client = new OkHttpClient();
+    private static final Pattern ISSUE_KEY = Pattern.compile("[A-Z][A-Z0-9]+-\\d+");
+    private static final Pattern NUMERIC_ID = Pattern.compile("-?\\d+");
     private final String urlHost;
     private final String authKey;
 
@@ -30,71 +41,229 @@ public class UrlUtil {
         return conn;
     }
 
+    private static HttpEvent beginRequest() {
+        if (!Metrics.isEnabled()) return null;
+        HttpEvent event = new HttpEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records latency and status code against the endpoint, as named by {@link #endpointOf(String)}. Does nothing if
+     * metrics were disabled when the request began.
+     */
+    private static void endRequest(HttpEvent event, String method, String urlPath, int status, long started) {
+        if (event == null) return;
+        String endpoint = method + " " + endpointOf(urlPath);
+        Metrics.time("http." + endpoint + ".latency", System.nanoTime() - started);
+        Metrics.count("http." + endpoint + ".status." + status, 1);
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = method;
+            event.endpoint = endpoint;
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    /**
+     * Names the endpoint a request went to, with the query string dropped and the variable parts of the path
+     * collapsed, so that e.g. every execution update or issue lookup lands on the same endpoint. Numeric IDs become
+     * {id}, and issue keys and project names become {key}. The API version is kept.
+     */
+    static String endpointOf(String urlPath) {
+        int query = urlPath.indexOf('?');
+        String path = (query < 0) ? urlPath : urlPath.substring(0, query);
+        String[] segments = path.replaceAll("^/+", "").split("/", -1);
+        for (int i = 1; i < segments.length; i++) {
+            String previous = segments[i - 1];
+            if (segments[i].isEmpty() || previous.equals("api")) continue;
+            if (previous.equals("issue") || previous.equals("project") || ISSUE_KEY.matcher(segments[i]).matches()) {
+                segments[i] = "{key}";
+            } else if (NUMERIC_ID.matcher(segments[i]).matches()) {
+                segments[i] = "{id}";
+            }
+        }
+        return String.join("/", segments);
+    }
+
     public JsonObject getJson(String urlPath) throws IOException, HTTPException {
-        HttpURLConnection conn = getConn(urlPath);
-        conn.connect();
-        int status = conn.getResponseCode();
-        switch (status) {
-            case 200:
-            case 201:
-                try (BufferedReader bfr = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    return JsonParser.parseReader(bfr).getAsJsonObject();
-                }
-            default:
-                throw new HTTPException(String.format("Unexpected response %s received.", status));
+        return streamJson(urlPath, reader -> JsonParser.parseReader(reader).getAsJsonObject());
+    }
+
+    /**
+     * Streams a GET response through a JsonReader instead of building the whole tree. The handler only needs to read
+     * as far as it cares to; the connection is closed as soon as it returns.
+     */
+    public <T> T streamJson(String urlPath, JsonStreamHandler<T> handler) throws IOException, HTTPException {
+        HttpEvent event = beginRequest();
+        long started = System.nanoTime();
+        int status = -1;
+        try {
+            HttpURLConnection conn = getConn(urlPath);
+            conn.connect();
+            status = conn.getResponseCode();
+            switch (status) {
+                case 200:
+                case 201:
+                    try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)))) {
+                        reader.setLenient(true);
+                        return handler.handle(reader);
+                    }
+                default:
+                    throw new HTTPException(String.format("Unexpected response %s received.", status));
+            }
+        } finally {
+            endRequest(event, "GET", urlPath, status, started);
         }
     }
 
-    public JsonObject putJson(String urlPath, JsonObject payload) throws IOException, HTTPException {
-        HttpURLConnection conn = getConn(urlPath);
-        conn.setRequestMethod("PUT");
-        conn.setDoOutput(true);
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(payload.toString().getBytes(StandardCharsets.UTF_8));
+    /**
+     * Pages through a ZAPI offset/limit listing, handing each element of the named array to the handler. The handler
+     * must consume exactly one element. Paging stops as soon as the handler returns a non-null value, which is then
+     * returned, or when the listing is exhausted, in which case null is returned. The listing is exhausted once
+     * recordsCount elements have been seen, or, if the server doesn't send recordsCount, at the first short page. The
+     * server may cap the page size below the one requested.
+     *
+     * @param arrayName The name of the top-level array holding the listing, e.g. "executions".
+     * @param pageSize The number of records to request per page.
+     */
+    public <T> T streamPaged(String urlPath, String arrayName, int pageSize, JsonStreamHandler<T> elementHandler) throws IOException, HTTPException {
+        String separator = urlPath.contains("?") ? "&" : "?";
+        int offset = 0;
+        while (true) {
+            Page<T> page = streamJson(urlPath + separator + "offset=" + offset + "&limit=" + pageSize,
+                    reader -> readPage(reader, arrayName, elementHandler));
+            if (page.found != null) return page.found;
+            offset += page.elements;
+            if (page.elements == 0) return null;
+            if (page.recordsCount >= 0) {
+                if (offset >= page.recordsCount) return null;
+            } else if (page.elements < pageSize) {
+                return null;
+            }
         }
-        int status = conn.getResponseCode();
-        switch (status) {
-            case 200:
-            case 201:
-                try (BufferedReader bfr = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    return JsonParser.parseReader(bfr).getAsJsonObject();
-                }
-            default:
-                try (BufferedReader bfr = new BufferedReader(new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-                    JsonObject json = JsonParser.parseReader(bfr).getAsJsonObject();
-                    System.out.println(json.toString());
+    }
+
+    private static <T> Page<T> readPage(JsonReader reader, String arrayName, JsonStreamHandler<T> elementHandler) throws IOException {
+        Page<T> page = new Page<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals(arrayName) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    page.elements++;
+                    if ((page.found = elementHandler.handle(reader)) != null) return page;
                 }
-                throw new HTTPException(String.format("Unexpected response %s received.", status));
+                reader.endArray();
+            } else if (name.equals("recordsCount") && reader.peek() == JsonToken.NUMBER) {
+                page.recordsCount = reader.nextInt();
+            } else {
+                reader.skipValue();
+            }
         }
+        reader.endObject();
+        return page;
     }
 
-    public JsonObject postJson(String urlPath, JsonObject payload) throws IOException, HTTPException {
-        HttpURLConnection conn = getConn(urlPath);
-        conn.setRequestMethod("POST");
-        conn.setDoOutput(true);
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(payload.toString().getBytes(StandardCharsets.UTF_8));
+    private static class Page<T> {
+        private T found = null;
+        private int elements = 0;
+        private int recordsCount = -1;
+    }
+
+    /**
+     * Reads the object at the reader's position and returns the named field as a string, skipping everything else.
+     * Returns null if the field is absent or null.
+     */
+    public static String readStringField(JsonReader reader, String fieldName) throws IOException {
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if (name.equals(fieldName) && (token == JsonToken.STRING || token == JsonToken.NUMBER)) {
+                value = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
         }
-        int status = conn.getResponseCode();
-        switch (status) {
-            case 200:
-            case 201:
-                try (BufferedReader bfr = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                    return JsonParser.parseReader(bfr).getAsJsonObject();
-                }
-            default:
-                try (BufferedReader bfr = new BufferedReader(new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
-                    JsonObject json = JsonParser.parseReader(bfr).getAsJsonObject();
-                    System.out.println(json.toString());
-                }
-                throw new HTTPException(String.format("Unexpected response %s received.", status));
+        reader.endObject();
+        return value;
+    }
+
+    public JsonObject putJson(String urlPath, JsonObject payload) throws IOException, HTTPException {
+        HttpEvent event = beginRequest();
+        long started = System.nanoTime();
+        int status = -1;
+        try {
+            HttpURLConnection conn = getConn(urlPath);
+            conn.setRequestMethod("PUT");
+            conn.setDoOutput(true);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(payload.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            status = conn.getResponseCode();
+            switch (status) {
+                case 200:
+                case 201:
+                    try (BufferedReader bfr = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+                        return JsonParser.parseReader(bfr).getAsJsonObject();
+                    }
+                default:
+                    try (BufferedReader bfr = new BufferedReader(new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
+                        JsonObject json = JsonParser.parseReader(bfr).getAsJsonObject();
+                        logger.error("PUT {} returned {}: {}", urlPath, status, json);
+                    }
+                    throw new HTTPException(String.format("Unexpected response %s received.", status));
+            }
+        } finally {
+            endRequest(event, "PUT", urlPath, status, started);
+        }
+    }
+
+    public JsonObject postJson(String urlPath, JsonObject payload) throws IOException, HTTPException {
+        HttpEvent event = beginRequest();
+        long started = System.nanoTime();
+        int status = -1;
+        try {
+            HttpURLConnection conn = getConn(urlPath);
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(payload.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            status = conn.getResponseCode();
+            switch (status) {
+                case 200:
+                case 201:
+                    try (BufferedReader bfr = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+                        return JsonParser.parseReader(bfr).getAsJsonObject();
+                    }
+                default:
+                    try (BufferedReader bfr = new BufferedReader(new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8))) {
+                        JsonObject json = JsonParser.parseReader(bfr).getAsJsonObject();
+                        logger.error("POST {} returned {}: {}", urlPath, status, json);
+                    }
+                    throw new HTTPException(String.format("Unexpected response %s received.", status));
+            }
+        } finally {
+            endRequest(event, "POST", urlPath, status, started);
         }
     }
 
     public JsonObject postFile(String urlPath, File file, String fileMimeType) throws HTTPException, IOException {
-        OkHttpClient client = new OkHttpClient();
+        return postFile(urlPath, file.getName(), RequestBody.create(file, MediaType.parse(fileMimeType)));
+    }
+
+    /**
+     * Posts a multipart file upload. The body is written straight to the connection, so a file-backed or streaming
+     * RequestBody never has to be held in memory.
+     */
+    public JsonObject postFile(String urlPath, String fileName, RequestBody fileBody) throws HTTPException, IOException {
         RequestBody requestBody = new MultipartBody.Builder().setType(MultipartBody.FORM)
-                .addFormDataPart("file", file.getName(), RequestBody.create(file, MediaType.parse(fileMimeType)))
+                .addFormDataPart("file", fileName, fileBody)
                 .build();
         Request request = new Request.Builder()
                 .addHeader("Authorization", "Basic " + authKey)
@@ -102,16 +271,22 @@ public class UrlUtil {
                 .addHeader("X-Atlassian-Token", "no-check")
                 .addHeader("Accept", "application/json")
                 .url(urlHost + urlPath).post(requestBody).build();
-        Response response = client.newCall(request).execute();
-
-        int status = response.code();
-        switch (status) {
-            case 200:
-            case 201:
-                return JsonParser.parseString(response.body().string()).getAsJsonObject();
-            default:
-                System.out.println(response.body().string());
-                throw new HTTPException(String.format("Unexpected response %s received.", status));
+
+        HttpEvent event = beginRequest();
+        long started = System.nanoTime();
+        int status = -1;
+        try (Response response = client.newCall(request).execute()) {
+            status = response.code();
+            switch (status) {
+                case 200:
+                case 201:
+                    return JsonParser.parseReader(response.body().charStream()).getAsJsonObject();
+                default:
+                    logger.error("POST {} returned {}: {}", urlPath, status, response.body().string());
+                    throw new HTTPException(String.format("Unexpected response %s received.", status));
+            }
+        } finally {
+            endRequest(event, "POST", urlPath, status, started);
         }
     }
 }
@@ -0,0 +1,23 @@
+package dev.anthonyashco.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for a csv transcribed to a workbook sheet by CsvConverter.
+ */
+@Name("dev.anthonyashco.Convert")
+@Label("Csv To Xlsx")
+@Category({"Database Automation", "Text Utilities"})
+public class ConvertEvent extends Event {
+    @Label("Input File")
+    public String inputFile;
+
+    @Label("Sheet Name")
+    public String sheetName;
+
+    @Label("Inverted")
+    public boolean inverted;
+
+    @Label("Cells Written")
+    public long cells;
+}
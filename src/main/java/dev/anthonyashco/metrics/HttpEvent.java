@@ -0,0 +1,20 @@
+package dev.anthonyashco.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for a single Jira REST call made through UrlUtil.
+ */
+@Name("dev.anthonyashco.Http")
+@Label("Jira Request")
+@Category({"Database Automation", "Jira"})
+public class HttpEvent extends Event {
+    @Label("Method")
+    public String method;
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Status")
+    public int status;
+}
@@ -0,0 +1,126 @@
+package dev.anthonyashco.metrics;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics is a registry of named counters and statistics shared by the sqlserver, textutilities and jirautilities
+ * packages. Instrumented code also emits JFR events from {@link dev.anthonyashco.metrics this package} when metrics
+ * are enabled.
+ * <p>
+ * Metrics are off by default. Turn them on with -Ddev.anthonyashco.metrics=true or {@link #setEnabled(boolean)}.
+ * While off, instrumented code only pays for a volatile read per operation, never per row.
+ */
+public class Metrics {
+    private static volatile boolean enabled = Boolean.getBoolean("dev.anthonyashco.metrics");
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Stat> stats = new ConcurrentHashMap<>();
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Adds to a named counter, e.g. rows read or records rejected.
+     */
+    public static void count(String name, long delta) {
+        if (!enabled) return;
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Records a duration against a named timer. The snapshot reports timers in milliseconds.
+     */
+    public static void time(String name, long nanos) {
+        if (!enabled) return;
+        stats.computeIfAbsent(name + ".ms", k -> new Stat()).add(nanos / 1_000_000.0);
+    }
+
+    /**
+     * Records an observed value such as a rate against a named statistic.
+     */
+    public static void observe(String name, double value) {
+        if (!enabled) return;
+        stats.computeIfAbsent(name, k -> new Stat()).add(value);
+    }
+
+    /**
+     * Returns the number of units per second, or 0 if no time has elapsed.
+     */
+    public static double perSecond(long units, long nanos) {
+        return (nanos <= 0) ? 0 : units * 1_000_000_000.0 / nanos;
+    }
+
+    /**
+     * Clears every counter and statistic.
+     */
+    public static void reset() {
+        counters.clear();
+        stats.clear();
+    }
+
+    /**
+     * Takes a point-in-time JSON snapshot of every counter and statistic, sorted by name.
+     */
+    public static JsonObject snapshot() {
+        JsonObject counterJson = new JsonObject();
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            counterJson.addProperty(entry.getKey(), entry.getValue().sum());
+        }
+        JsonObject statJson = new JsonObject();
+        for (Map.Entry<String, Stat> entry : new TreeMap<>(stats).entrySet()) {
+            statJson.add(entry.getKey(), entry.getValue().toJson());
+        }
+        JsonObject json = new JsonObject();
+        json.add("counters", counterJson);
+        json.add("stats", statJson);
+        return json;
+    }
+
+    /**
+     * Writes a pretty-printed {@link #snapshot() snapshot} to a file.
+     */
+    public static void writeSnapshot(Path outputFile) throws IOException {
+        try (BufferedWriter bfw = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(snapshot(), bfw);
+        }
+    }
+
+    private static class Stat {
+        private long count = 0;
+        private double sum = 0;
+        private double min = Double.MAX_VALUE;
+        private double max = -Double.MAX_VALUE;
+
+        private synchronized void add(double value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        private synchronized JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("count", count);
+            json.addProperty("mean", sum / count);
+            json.addProperty("min", min);
+            json.addProperty("max", max);
+            json.addProperty("total", sum);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package dev.anthonyashco.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for a single pass of DatParser over an input file.
+ */
+@Name("dev.anthonyashco.Parse")
+@Label("Dat Parse")
+@Category({"Database Automation", "Text Utilities"})
+public class ParseEvent extends Event {
+    @Label("Input File")
+    public String inputFile;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Records")
+    public long records;
+
+    @Label("Rejected Records")
+    public long rejected;
+}
@@ -0,0 +1,25 @@
+package dev.anthonyashco.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for a single result set written to csv by QueryUtil.
+ */
+@Name("dev.anthonyashco.Query")
+@Label("Query To Csv")
+@Category({"Database Automation", "SQL Server"})
+public class QueryEvent extends Event {
+    @Label("Output File")
+    public String outputFile;
+
+    @Label("Time To First Row")
+    @Timespan(Timespan.NANOSECONDS)
+    public long timeToFirstRow;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+}
@@ -0,0 +1,41 @@
+package dev.anthonyashco.pipeline;
+
+import java.util.*;
+
+/**
+ * Checks a given heading at every row against a list of valid values, like
+ * {@link dev.anthonyashco.textutilities.DatParser#verifyDatFieldDataIsValid DatParser.verifyDatFieldDataIsValid}.
+ */
+public class AllowedValuesValidator implements RowValidator {
+    private final String heading;
+    private final Set<String> validValues;
+    private final List<String> errors = new ArrayList<>();
+    private int column = -1;
+    private long rowNumber = 0;
+
+    public AllowedValuesValidator(String heading, String... validValues) {
+        this.heading = heading;
+        this.validValues = new HashSet<>(Arrays.asList(validValues));
+    }
+
+    @Override
+    public void open(String[] headers) {
+        column = Arrays.asList(headers).indexOf(heading);
+        if (column < 0) errors.add(String.format("Heading %s absent from file.", heading));
+    }
+
+    @Override
+    public void accept(String[] row) {
+        rowNumber++;
+        if (column < 0) return;
+        String data = row[column];
+        if (!validValues.contains(data)) {
+            errors.add(String.format("Record %s:%s in row %d is invalid.", heading, data, rowNumber));
+        }
+    }
+
+    @Override
+    public List<String> getErrors() {
+        return errors;
+    }
+}
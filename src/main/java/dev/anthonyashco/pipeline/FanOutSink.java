@@ -0,0 +1,51 @@
+package dev.anthonyashco.pipeline;
+
+import dev.anthonyashco.sinks.RowSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FanOutSink hands every row to each of its sinks in turn, so a single pass over a result set can feed validators,
+ * file outputs and aggregators at once.
+ */
+public class FanOutSink implements RowSink {
+    private final List<RowSink> sinks;
+
+    public FanOutSink(List<? extends RowSink> sinks) {
+        this.sinks = new ArrayList<>(sinks);
+    }
+
+    @Override
+    public void open(String[] headers) throws IOException {
+        for (RowSink sink : sinks) sink.open(headers);
+    }
+
+    @Override
+    public void accept(String[] row) throws IOException {
+        for (RowSink sink : sinks) sink.accept(row);
+    }
+
+    @Override
+    public void discard() {
+        for (RowSink sink : sinks) sink.discard();
+    }
+
+    /**
+     * Closes every sink, even if some of them fail, and rethrows the first failure.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (RowSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+}
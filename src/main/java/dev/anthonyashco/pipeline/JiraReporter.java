@@ -0,0 +1,38 @@
+package dev.anthonyashco.pipeline;
+
+import dev.anthonyashco.exceptions.HTTPException;
+import dev.anthonyashco.jirautilities.JiraUtil;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * JiraReporter updates each reported query's Jira execution with its verdict and attaches the csv and xlsx outputs the
+ * run wrote for it.
+ * Requires the JiraUtil's versionId and cycleId to be set first.
+ */
+public class JiraReporter implements ResultListener {
+    private final JiraUtil jira;
+
+    public JiraReporter(JiraUtil jira) {
+        this.jira = jira;
+    }
+
+    @Override
+    public void onResult(QueryResult result) throws IOException, HTTPException {
+        if (result.getIssueName() == null) return;
+        String executionId = jira.getExecutionId(result.getIssueName());
+        jira.updateExecutionStatus(executionId, result.getStatusCode());
+        for (Path report : result.getReports()) {
+            jira.attachExecutionReport(executionId, report, mimeType(report));
+        }
+    }
+
+    private static String mimeType(Path report) {
+        String fileName = report.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (fileName.endsWith(".csv")) return "text/csv";
+        if (fileName.endsWith(".xlsx")) return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        return "application/octet-stream";
+    }
+}
@@ -0,0 +1,186 @@
+package dev.anthonyashco.pipeline;
+
+import dev.anthonyashco.jirautilities.ExecutionStatus;
+import dev.anthonyashco.metrics.Metrics;
+import dev.anthonyashco.sinks.RowSink;
+import dev.anthonyashco.sqlserver.QueryUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Pipeline runs a job of queries, streaming each query's rows once through its validators and csv/xlsx outputs
+ * instead of writing a csv and re-reading it for each step.
+ * <p>
+ * Queries that don't depend on each other run concurrently on the given executor, each on its own connection.
+ * Listeners such as {@link JiraReporter} are notified as soon as each query's verdict is known.
+ * <pre>{@code
+ * Pipeline pipeline = new Pipeline(() -> new QueryUtil(connectionString));
+ * pipeline.query("accounts", Paths.get("src/test/resources/sqlqueries/accounts.sql"))
+ *         .validate(new AllowedValuesValidator("status", "A", "I"))
+ *         .toXlsx(Paths.get("reports/accounts.xlsx"), "accounts", false)
+ *         .reportAs("PROJ-101");
+ * pipeline.query("positions", Paths.get("src/test/resources/sqlqueries/positions.sql"))
+ *         .dependsOn("accounts")
+ *         .toCsv(Paths.get("reports/positions.csv"))
+ *         .reportAs("PROJ-102");
+ * pipeline.addListener(new JiraReporter(jira));
+ * Map<String, QueryResult> results = pipeline.run(executor);
+ * }</pre>
+ */
+public class Pipeline {
+    private static final Logger logger = LogManager.getLogger(Pipeline.class);
+    private final Supplier<QueryUtil> connections;
+    private final Map<String, QueryStage> stages = new LinkedHashMap<>();
+    private final List<ResultListener> listeners = new ArrayList<>();
+
+    /**
+     * @param connections Opens a new QueryUtil for each query. Each one is closed when its query finishes.
+     */
+    public Pipeline(Supplier<QueryUtil> connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * Adds a query to the job.
+     *
+     * @param name A name for the query, unique within the job, used by {@link QueryStage#dependsOn(String...)}.
+     * @param args String parameters to inject into the PreparedStatement.
+     */
+    public QueryStage query(String name, Path sqlFile, String... args) {
+        if (stages.containsKey(name)) throw new IllegalArgumentException(String.format("Query %s already exists.", name));
+        QueryStage stage = new QueryStage(name, sqlFile, args);
+        stages.put(name, stage);
+        return stage;
+    }
+
+    public void addListener(ResultListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Runs every query, waiting for all of them and their listeners to finish. Dependencies are checked before
+     * anything is scheduled, so an unknown or circular dependency fails the job without running any query.
+     *
+     * @return The result of each query, in the order they were added.
+     */
+    public Map<String, QueryResult> run(Executor executor) throws InterruptedException {
+        Set<String> checked = new HashSet<>();
+        for (String name : stages.keySet()) checkDependencies(name, checked, new LinkedHashSet<>());
+
+        Map<String, CompletableFuture<QueryResult>> futures = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> notifications = new ArrayList<>();
+        for (String name : stages.keySet()) schedule(name, executor, futures, notifications);
+
+        Map<String, QueryResult> results = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, CompletableFuture<QueryResult>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().get());
+            }
+            CompletableFuture.allOf(notifications.toArray(new CompletableFuture<?>[0])).get();
+        } catch (ExecutionException e) {
+            // Stages and listeners catch their own failures, so this only happens if the executor rejects work.
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Checks that every query the named one depends on, directly or not, exists and doesn't lead back to it.
+     *
+     * @param checked Queries already found to be sound.
+     * @param path The chain of queries that led here.
+     */
+    private void checkDependencies(String name, Set<String> checked, LinkedHashSet<String> path) {
+        if (checked.contains(name)) return;
+        if (!path.add(name)) {
+            List<String> chain = new ArrayList<>(path);
+            chain = new ArrayList<>(chain.subList(chain.indexOf(name), chain.size()));
+            chain.add(name);
+            throw new IllegalArgumentException(String.format("Query %s depends on itself: %s.", name, String.join(" -> ", chain)));
+        }
+        for (String dependency : stages.get(name).getDependencies()) {
+            if (!stages.containsKey(dependency)) {
+                throw new IllegalArgumentException(String.format("Query %s depends on %s, which was not found.", name, dependency));
+            }
+            checkDependencies(dependency, checked, path);
+        }
+        path.remove(name);
+        checked.add(name);
+    }
+
+    private CompletableFuture<QueryResult> schedule(String name, Executor executor,
+                                                    Map<String, CompletableFuture<QueryResult>> futures,
+                                                    List<CompletableFuture<Void>> notifications) {
+        CompletableFuture<QueryResult> scheduled = futures.get(name);
+        if (scheduled != null) return scheduled;
+        QueryStage stage = stages.get(name);
+
+        List<CompletableFuture<QueryResult>> dependencies = new ArrayList<>();
+        for (String dependency : stage.getDependencies()) {
+            dependencies.add(schedule(dependency, executor, futures, notifications));
+        }
+
+        CompletableFuture<QueryResult> future = CompletableFuture
+                .allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                .thenApplyAsync(ignored -> {
+                    for (CompletableFuture<QueryResult> dependency : dependencies) {
+                        QueryResult result = dependency.join();
+                        if (!result.isPassed()) {
+                            return new QueryResult(stage, ExecutionStatus.BLOCK, 0, Collections.singletonList(
+                                    String.format("Blocked by %s.", result.getName())), Collections.emptyList(), 0, null);
+                        }
+                    }
+                    return execute(stage);
+                }, executor);
+        futures.put(name, future);
+        notifications.add(future.thenAcceptAsync(this::notifyListeners, executor));
+        return future;
+    }
+
+    private QueryResult execute(QueryStage stage) {
+        long started = System.nanoTime();
+        List<RowSink> sinks = new ArrayList<>(stage.getValidators());
+        sinks.addAll(stage.getSinks());
+        long rows;
+        try (QueryUtil queryUtil = connections.get();
+             FanOutSink fanOut = new FanOutSink(sinks);
+             PreparedStatement ps = queryUtil.getStatement(stage.getSqlFile(), stage.getArgs())) {
+            try {
+                rows = queryUtil.executeToSink(ps, fanOut);
+            } catch (Exception e) {
+                // Keep any earlier outputs rather than replacing them with partial ones.
+                fanOut.discard();
+                throw e;
+            }
+        } catch (Exception e) {
+            logger.error("Query {} failed.", stage.getName(), e);
+            return new QueryResult(stage, ExecutionStatus.FAIL, 0, Collections.singletonList(String.valueOf(e)),
+                    Collections.emptyList(), System.nanoTime() - started, e);
+        }
+
+        List<String> errors = new ArrayList<>();
+        for (RowValidator validator : stage.getValidators()) errors.addAll(validator.getErrors());
+        long elapsed = System.nanoTime() - started;
+        Metrics.time("pipeline.query.duration", elapsed);
+        return new QueryResult(stage, errors.isEmpty() ? ExecutionStatus.PASS : ExecutionStatus.FAIL, rows, errors,
+                stage.getReports(), elapsed, null);
+    }
+
+    private void notifyListeners(QueryResult result) {
+        for (ResultListener listener : listeners) {
+            try {
+                listener.onResult(result);
+            } catch (Exception e) {
+                logger.error("Failed to report result for {}.", result.getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package dev.anthonyashco.pipeline;
+
+import dev.anthonyashco.jirautilities.ExecutionStatus;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * QueryResult is the verdict for one query in a {@link Pipeline}.
+ */
+public class QueryResult {
+    private final String name;
+    private final String issueName;
+    private final int statusCode;
+    private final long rows;
+    private final List<String> errors;
+    private final List<Path> reports;
+    private final long elapsedNanos;
+    private final Exception failure;
+
+    QueryResult(QueryStage stage, int statusCode, long rows, List<String> errors, List<Path> reports, long elapsedNanos,
+                Exception failure) {
+        this.name = stage.getName();
+        this.issueName = stage.getIssueName();
+        this.statusCode = statusCode;
+        this.rows = rows;
+        this.errors = Collections.unmodifiableList(errors);
+        this.reports = Collections.unmodifiableList(new ArrayList<>(reports));
+        this.elapsedNanos = elapsedNanos;
+        this.failure = failure;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The Jira issue this query reports against, or null if it isn't reported.
+     */
+    public String getIssueName() {
+        return issueName;
+    }
+
+    /**
+     * @return PASS if the query ran and every validator passed, FAIL if it failed or errored, or BLOCK if a query it
+     * depends on didn't pass. Codes are from {@link ExecutionStatus ExecutionStatus}.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isPassed() {
+        return statusCode == ExecutionStatus.PASS;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return The csv and xlsx files this run wrote for the query, in the order they were added. Empty if the query
+     * was blocked or failed before its outputs were complete.
+     */
+    public List<Path> getReports() {
+        return reports;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The exception that stopped the query, or null if it ran to completion.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: status %d, %d rows, %d errors, %d ms", name, statusCode, rows, errors.size(),
+                elapsedNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,115 @@
+package dev.anthonyashco.pipeline;
+
+import dev.anthonyashco.sinks.CsvSink;
+import dev.anthonyashco.sinks.RowSink;
+import dev.anthonyashco.sinks.XlsxSink;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * QueryStage describes one query in a {@link Pipeline}: the statement to run, what its rows stream into, and which
+ * other queries must pass before it runs. Sinks and validators hold state, so a stage only runs once.
+ */
+public class QueryStage {
+    private final String name;
+    private final Path sqlFile;
+    private final String[] args;
+    private final List<String> dependencies = new ArrayList<>();
+    private final List<RowValidator> validators = new ArrayList<>();
+    private final List<RowSink> sinks = new ArrayList<>();
+    private final List<Path> reports = new ArrayList<>();
+    private String issueName = null;
+
+    QueryStage(String name, Path sqlFile, String... args) {
+        this.name = name;
+        this.sqlFile = sqlFile;
+        this.args = args;
+    }
+
+    /**
+     * Waits for the named queries to pass before running. If any of them doesn't pass, this query is blocked.
+     */
+    public QueryStage dependsOn(String... names) {
+        dependencies.addAll(Arrays.asList(names));
+        return this;
+    }
+
+    /**
+     * Adds a validator. The query passes only if every validator finishes without errors.
+     */
+    public QueryStage validate(RowValidator validator) {
+        validators.add(validator);
+        return this;
+    }
+
+    /**
+     * Writes the rows to a csv file, which is also attached when reporting to Jira.
+     */
+    public QueryStage toCsv(Path outputFile) {
+        sinks.add(new CsvSink(outputFile));
+        reports.add(outputFile);
+        return this;
+    }
+
+    /**
+     * Writes the rows to a single-sheet workbook, which is also attached when reporting to Jira.
+     *
+     * @param invertAxis Whether to invert the x and y axes when transcribing.
+     */
+    public QueryStage toXlsx(Path outputFile, String sheetName, boolean invertAxis) {
+        sinks.add(new XlsxSink(outputFile, sheetName, invertAxis));
+        reports.add(outputFile);
+        return this;
+    }
+
+    /**
+     * Streams the rows into any other sink, e.g. an aggregator.
+     */
+    public QueryStage sink(RowSink sink) {
+        sinks.add(sink);
+        return this;
+    }
+
+    /**
+     * Reports this query's verdict against a Jira test issue.
+     */
+    public QueryStage reportAs(String issueName) {
+        this.issueName = issueName;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getIssueName() {
+        return issueName;
+    }
+
+    Path getSqlFile() {
+        return sqlFile;
+    }
+
+    String[] getArgs() {
+        return args;
+    }
+
+    List<String> getDependencies() {
+        return dependencies;
+    }
+
+    List<RowValidator> getValidators() {
+        return validators;
+    }
+
+    List<RowSink> getSinks() {
+        return sinks;
+    }
+
+    List<Path> getReports() {
+        return reports;
+    }
+}
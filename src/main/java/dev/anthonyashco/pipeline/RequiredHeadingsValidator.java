@@ -0,0 +1,37 @@
+package dev.anthonyashco.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that every given heading is present, like
+ * {@link dev.anthonyashco.textutilities.DatParser#verifyDatFields DatParser.verifyDatFields}.
+ */
+public class RequiredHeadingsValidator implements RowValidator {
+    private final String[] headings;
+    private final List<String> errors = new ArrayList<>();
+
+    public RequiredHeadingsValidator(String... headings) {
+        this.headings = headings;
+    }
+
+    @Override
+    public void open(String[] headers) {
+        List<String> present = Arrays.asList(headers);
+        for (String heading : headings) {
+            if (!present.contains(heading)) {
+                errors.add(String.format("Heading %s absent from file.", heading));
+            }
+        }
+    }
+
+    @Override
+    public void accept(String[] row) {
+    }
+
+    @Override
+    public List<String> getErrors() {
+        return errors;
+    }
+}
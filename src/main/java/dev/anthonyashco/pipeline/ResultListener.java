@@ -0,0 +1,14 @@
+package dev.anthonyashco.pipeline;
+
+import dev.anthonyashco.exceptions.HTTPException;
+
+import java.io.IOException;
+
+/**
+ * ResultListener is notified as soon as each query's verdict is known, without waiting for the rest of the pipeline.
+ * Listeners may be called from several threads at once.
+ */
+@FunctionalInterface
+public interface ResultListener {
+    void onResult(QueryResult result) throws IOException, HTTPException;
+}
@@ -0,0 +1,19 @@
+package dev.anthonyashco.pipeline;
+
+import dev.anthonyashco.sinks.RowSink;
+
+import java.util.List;
+
+/**
+ * RowValidator is a sink that checks rows as they stream past and collects error messages.
+ */
+public interface RowValidator extends RowSink {
+    /**
+     * @return Every error found so far. An empty list means the rows passed.
+     */
+    List<String> getErrors();
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,156 @@
+package dev.anthonyashco.profiling;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ColumnProfile accumulates statistics for one column in fixed memory: null, empty and length counts, min/max values,
+ * an approximate distinct count and the approximate most frequent values.
+ */
+public class ColumnProfile {
+    /**
+     * The sentinel QueryUtil writes in place of SQL nulls.
+     */
+    public static final String NULL_SENTINEL = "#####";
+
+    private final String name;
+    private final int topK;
+    private final HyperLogLog distinct;
+    private final TopK frequent;
+    private long count = 0;
+    private long nulls = 0;
+    private long empties = 0;
+    private long totalLength = 0;
+    private int minLength = Integer.MAX_VALUE;
+    private int maxLength = 0;
+    private String minValue = null;
+    private String maxValue = null;
+    private long numericCount = 0;
+    private double minNumber = Double.POSITIVE_INFINITY;
+    private double maxNumber = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param topK The number of most frequent values to report.
+     * @param precision The HyperLogLog precision for the distinct count.
+     */
+    public ColumnProfile(String name, int topK, int precision) {
+        this.name = name;
+        this.topK = topK;
+        this.distinct = new HyperLogLog(precision);
+        // Extra counters keep the reported top values accurate when the tail is long.
+        this.frequent = new TopK(Math.max(topK * 10, 64));
+    }
+
+    public void add(String value) {
+        count++;
+        if (value == null || value.equals(NULL_SENTINEL)) {
+            nulls++;
+            return;
+        }
+        if (value.isEmpty()) empties++;
+
+        int length = value.length();
+        totalLength += length;
+        if (length < minLength) minLength = length;
+        if (length > maxLength) maxLength = length;
+        if (minValue == null || value.compareTo(minValue) < 0) minValue = value;
+        if (maxValue == null || value.compareTo(maxValue) > 0) maxValue = value;
+
+        if (looksNumeric(value)) {
+            try {
+                double number = Double.parseDouble(value);
+                numericCount++;
+                if (number < minNumber) minNumber = number;
+                if (number > maxNumber) maxNumber = number;
+            } catch (NumberFormatException ignored) {
+                // Not a number after all, e.g. an account id with a letter in it.
+            }
+        }
+
+        distinct.add(value);
+        frequent.add(value);
+    }
+
+    /**
+     * Folds the statistics for the same column from another chunk into this one.
+     */
+    public void merge(ColumnProfile other) {
+        count += other.count;
+        nulls += other.nulls;
+        empties += other.empties;
+        totalLength += other.totalLength;
+        minLength = Math.min(minLength, other.minLength);
+        maxLength = Math.max(maxLength, other.maxLength);
+        if (other.minValue != null && (minValue == null || other.minValue.compareTo(minValue) < 0)) minValue = other.minValue;
+        if (other.maxValue != null && (maxValue == null || other.maxValue.compareTo(maxValue) > 0)) maxValue = other.maxValue;
+        numericCount += other.numericCount;
+        minNumber = Math.min(minNumber, other.minNumber);
+        maxNumber = Math.max(maxNumber, other.maxNumber);
+        distinct.merge(other.distinct);
+        frequent.merge(other.frequent);
+    }
+
+    private static boolean looksNumeric(String value) {
+        if (value.isEmpty()) return false;
+        char c = value.charAt(0);
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getNulls() {
+        return nulls;
+    }
+
+    public long getEmpties() {
+        return empties;
+    }
+
+    public long getDistinctEstimate() {
+        return distinct.estimate();
+    }
+
+    public List<Map.Entry<String, Long>> getTopValues() {
+        return frequent.top(topK);
+    }
+
+    public JsonObject toJson() {
+        long present = count - nulls;
+        JsonObject json = new JsonObject();
+        json.addProperty("name", name);
+        json.addProperty("count", count);
+        json.addProperty("nulls", nulls);
+        json.addProperty("empties", empties);
+        json.addProperty("distinctEstimate", getDistinctEstimate());
+        if (present > 0) {
+            json.addProperty("minLength", minLength);
+            json.addProperty("maxLength", maxLength);
+            json.addProperty("meanLength", (double) totalLength / present);
+            json.addProperty("min", minValue);
+            json.addProperty("max", maxValue);
+        }
+        if (numericCount > 0) {
+            json.addProperty("numericCount", numericCount);
+            json.addProperty("minNumber", minNumber);
+            json.addProperty("maxNumber", maxNumber);
+        }
+        JsonArray top = new JsonArray();
+        for (Map.Entry<String, Long> entry : getTopValues()) {
+            JsonObject value = new JsonObject();
+            value.addProperty("value", entry.getKey());
+            value.addProperty("count", entry.getValue());
+            top.add(value);
+        }
+        json.add("topValues", top);
+        return json;
+    }
+}
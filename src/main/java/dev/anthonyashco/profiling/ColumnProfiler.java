@@ -0,0 +1,134 @@
+package dev.anthonyashco.profiling;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import dev.anthonyashco.sinks.RowSink;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * ColumnProfiler profiles every column of an extract in a single streaming pass, in fixed memory per column.
+ * <p>
+ * It is a {@link RowSink}, so a query can be profiled straight from its ResultSet with
+ * {@link dev.anthonyashco.sqlserver.QueryUtil#executeToSink QueryUtil.executeToSink} or as part of a pipeline. Files
+ * can be profiled with {@link dev.anthonyashco.textutilities.DatParser#profile(int) DatParser.profile}. Profilers
+ * for separate chunks of the same extract can be {@link #merge(ColumnProfiler) merged}.
+ */
+public class ColumnProfiler implements RowSink {
+    private static final String[] SHEET_HEADERS = {"column", "count", "nulls", "empties", "distinctEstimate",
+            "minLength", "maxLength", "meanLength", "min", "max", "minNumber", "maxNumber", "topValues"};
+    private final int topK;
+    private final int precision;
+    private String[] headers = null;
+    private ColumnProfile[] columns = new ColumnProfile[0];
+    private long rows = 0;
+
+    public ColumnProfiler() {
+        this(10, 12);
+    }
+
+    /**
+     * @param topK The number of most frequent values to report per column.
+     * @param precision The HyperLogLog precision, see {@link HyperLogLog#HyperLogLog(int)}.
+     */
+    public ColumnProfiler(int topK, int precision) {
+        this.topK = topK;
+        this.precision = precision;
+    }
+
+    @Override
+    public void open(String[] headers) {
+        this.headers = headers.clone();
+        columns = new ColumnProfile[headers.length];
+        for (int i = 0; i < headers.length; i++) columns[i] = new ColumnProfile(headers[i], topK, precision);
+    }
+
+    /**
+     * Adds a row. Rows shorter than the header count as nulls in the missing columns.
+     */
+    @Override
+    public void accept(String[] row) {
+        rows++;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].add(i < row.length ? row[i] : null);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Folds a profiler for another chunk of the same extract into this one.
+     */
+    public void merge(ColumnProfiler other) {
+        if (other.headers == null) return;
+        if (headers == null) open(other.headers);
+        if (!Arrays.equals(headers, other.headers)) throw new IllegalArgumentException("Cannot merge profiles of different columns.");
+        rows += other.rows;
+        for (int i = 0; i < columns.length; i++) columns[i].merge(other.columns[i]);
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public List<ColumnProfile> getColumns() {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    public JsonObject toJson() {
+        JsonArray columnJson = new JsonArray();
+        for (ColumnProfile column : columns) columnJson.add(column.toJson());
+        JsonObject json = new JsonObject();
+        json.addProperty("rows", rows);
+        json.add("columns", columnJson);
+        return json;
+    }
+
+    public void writeJson(Path outputFile) throws IOException {
+        try (BufferedWriter bfw = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(toJson(), bfw);
+        }
+    }
+
+    /**
+     * Writes the profile to a new sheet in an Excel workbook, one row per column.
+     *
+     * @param workbook The destination Workbook from Apache POI.
+     * @param sheetName The name of the new sheet to create.
+     */
+    public void toSheet(Workbook workbook, String sheetName) {
+        Sheet sheet = workbook.createSheet(sheetName);
+        int rowNumber = 0;
+        Row headerRow = sheet.createRow(rowNumber++);
+        for (int i = 0; i < SHEET_HEADERS.length; i++) {
+            headerRow.createCell(i).setCellValue(SHEET_HEADERS[i]);
+        }
+
+        for (ColumnProfile column : columns) {
+            JsonObject json = column.toJson();
+            Row entryRow = sheet.createRow(rowNumber++);
+            entryRow.createCell(0).setCellValue(column.getName());
+            for (int i = 1; i < SHEET_HEADERS.length - 1; i++) {
+                JsonElement value = json.get(SHEET_HEADERS[i]);
+                if (value == null) continue;
+                if (value.getAsJsonPrimitive().isNumber()) entryRow.createCell(i).setCellValue(value.getAsDouble());
+                else entryRow.createCell(i).setCellValue(value.getAsString());
+            }
+            StringJoiner top = new StringJoiner(", ");
+            for (Map.Entry<String, Long> entry : column.getTopValues()) top.add(entry.getKey() + " (" + entry.getValue() + ")");
+            entryRow.createCell(SHEET_HEADERS.length - 1).setCellValue(top.toString());
+        }
+    }
+}
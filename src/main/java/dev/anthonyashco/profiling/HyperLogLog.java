@@ -0,0 +1,68 @@
+package dev.anthonyashco.profiling;
+
+/**
+ * HyperLogLog estimates the number of distinct strings seen in a fixed amount of memory (2^precision bytes).
+ * Sketches with the same precision can be merged, so chunks of a file can be counted separately and combined.
+ */
+public class HyperLogLog {
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * @param precision Between 4 and 18. The standard error is about 1.04 / sqrt(2^precision), e.g. 1.6% at 12.
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) throw new IllegalArgumentException("Precision must be between 4 and 18.");
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        if (rank > registers[index]) registers[index] = (byte) rank;
+    }
+
+    /**
+     * Folds another sketch into this one.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) throw new IllegalArgumentException("Cannot merge sketches of different precision.");
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) zeros++;
+        }
+        double alpha = (m == 16) ? 0.673 : (m == 32) ? 0.697 : (m == 64) ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // Linear counting is more accurate while many registers are still empty.
+        if (estimate <= 2.5 * m && zeros > 0) estimate = m * Math.log((double) m / zeros);
+        return Math.round(estimate);
+    }
+
+    /**
+     * 64-bit FNV-1a over the string's chars, finished with the MurmurHash3 mixer so every bit is well distributed.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,68 @@
+package dev.anthonyashco.profiling;
+
+import java.util.*;
+
+/**
+ * TopK tracks the most frequent strings in a stream with a fixed number of counters (the Misra-Gries summary). Any
+ * value making up more than 1/(capacity + 1) of the stream is guaranteed to be kept, and each reported count is at
+ * most n/(capacity + 1) below the true count. Summaries can be merged.
+ */
+public class TopK {
+    private final int capacity;
+    private final Map<String, long[]> counters;
+
+    public TopK(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void add(String value) {
+        long[] counter = counters.get(value);
+        if (counter != null) {
+            counter[0]++;
+        } else if (counters.size() < capacity) {
+            counters.put(value, new long[]{1});
+        } else {
+            // No room: the new value and every tracked value each lose one.
+            Iterator<long[]> it = counters.values().iterator();
+            while (it.hasNext()) {
+                if (--it.next()[0] == 0) it.remove();
+            }
+        }
+    }
+
+    /**
+     * Folds another summary into this one by adding counts, then trimming back to capacity.
+     */
+    public void merge(TopK other) {
+        for (Map.Entry<String, long[]> entry : other.counters.entrySet()) {
+            long[] counter = counters.get(entry.getKey());
+            if (counter != null) counter[0] += entry.getValue()[0];
+            else counters.put(entry.getKey(), new long[]{entry.getValue()[0]});
+        }
+        if (counters.size() <= capacity) return;
+
+        long[] counts = new long[counters.size()];
+        int i = 0;
+        for (long[] counter : counters.values()) counts[i++] = counter[0];
+        Arrays.sort(counts);
+        long cut = counts[counts.length - capacity - 1];
+        Iterator<long[]> it = counters.values().iterator();
+        while (it.hasNext()) {
+            long[] counter = it.next();
+            if ((counter[0] -= cut) <= 0) it.remove();
+        }
+    }
+
+    /**
+     * @return Up to k of the most frequent values with their estimated counts, most frequent first.
+     */
+    public List<Map.Entry<String, Long>> top(int k) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()[0]));
+        }
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return entries.subList(0, Math.min(k, entries.size()));
+    }
+}
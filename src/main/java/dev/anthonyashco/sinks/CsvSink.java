@@ -0,0 +1,70 @@
+package dev.anthonyashco.sinks;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * CsvSink writes rows to a csv file in the same format as QueryUtil.executeToCsv. The file only replaces any earlier
+ * output once it's closed without being discarded.
+ */
+public class CsvSink implements RowSink {
+    private final Path outputFile;
+    private final CSVFormat format;
+    private CSVPrinter csv;
+    private Path partial;
+    private boolean discarded = false;
+
+    public CsvSink(Path outputFile) {
+        this(outputFile, CSVFormat.Builder.create().setAllowDuplicateHeaderNames(true).build());
+    }
+
+    /**
+     * @param format The format to write with. The header is set from the result set.
+     */
+    public CsvSink(Path outputFile, CSVFormat format) {
+        this.outputFile = outputFile;
+        this.format = format;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    @Override
+    public void open(String[] headers) throws IOException {
+        partial = PartialFile.create(outputFile);
+        BufferedWriter bfw = Files.newBufferedWriter(partial, Charset.defaultCharset());
+        csv = CSVFormat.Builder.create(format).setHeader(headers).build().print(bfw);
+    }
+
+    @Override
+    public void accept(String[] row) throws IOException {
+        csv.printRecord((Object[]) row);
+    }
+
+    @Override
+    public void discard() {
+        discarded = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (csv == null) return;
+        boolean written = false;
+        try {
+            csv.close(true);
+            if (!discarded) {
+                PartialFile.commit(partial, outputFile);
+                written = true;
+            }
+        } finally {
+            if (!written) Files.deleteIfExists(partial);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package dev.anthonyashco.sinks;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * File sinks write to a partial file next to the output and only move it into place once it's complete, so a failed
+ * or discarded write never replaces an earlier output.
+ */
+final class PartialFile {
+    private PartialFile() {
+    }
+
+    static Path create(Path outputFile) throws IOException {
+        Path directory = outputFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, outputFile.getFileName().toString() + ".", ".partial");
+    }
+
+    static void commit(Path partial, Path outputFile) throws IOException {
+        try {
+            Files.move(partial, outputFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, outputFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
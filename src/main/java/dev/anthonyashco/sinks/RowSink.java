@@ -0,0 +1,27 @@
+package dev.anthonyashco.sinks;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * RowSink receives the rows of a result set as they are read, with nulls already replaced by the "#####" sentinel
+ * used in csv output. The sink is closed by whoever created it, not by whatever feeds it rows.
+ */
+public interface RowSink extends Closeable {
+    /**
+     * Called once with the column labels before any rows arrive.
+     */
+    void open(String[] headers) throws IOException;
+
+    /**
+     * Called once per row. The array must not be kept after the call returns.
+     */
+    void accept(String[] row) throws IOException;
+
+    /**
+     * Called before close if the rows stopped early, e.g. because the query failed partway. Sinks that write files
+     * throw away what they've written instead of replacing an earlier output with a partial one.
+     */
+    default void discard() {
+    }
+}
@@ -0,0 +1,101 @@
+package dev.anthonyashco.sinks;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * XlsxSink transcribes rows to a single-sheet workbook the same way as CsvConverter.toXlsx, and writes the workbook
+ * out when closed, unless it was discarded. Unless the axes are inverted, rows are flushed to disk as they arrive
+ * rather than held in memory.
+ */
+public class XlsxSink implements RowSink {
+    private final Path outputFile;
+    private final String sheetName;
+    private final boolean invertAxis;
+    private Workbook workbook;
+    private Sheet sheet;
+    private int position = 0;
+    private boolean discarded = false;
+
+    /**
+     * @param invertAxis Whether to invert the x and y axes when transcribing.
+     */
+    public XlsxSink(Path outputFile, String sheetName, boolean invertAxis) {
+        this.outputFile = outputFile;
+        this.sheetName = sheetName;
+        this.invertAxis = invertAxis;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    @Override
+    public void open(String[] headers) {
+        // Inverted sheets revisit every row for each record, which the streaming workbook can't do.
+        workbook = invertAxis ? new XSSFWorkbook() : new SXSSFWorkbook();
+        sheet = workbook.createSheet(sheetName);
+        if (invertAxis) {
+            for (int i = 0; i < headers.length; i++) {
+                sheet.createRow(i).createCell(position).setCellValue(headers[i]);
+            }
+        } else {
+            Row headerRow = sheet.createRow(position);
+            for (int i = 0; i < headers.length; i++) {
+                headerRow.createCell(i).setCellValue(headers[i]);
+            }
+        }
+        position++;
+    }
+
+    @Override
+    public void accept(String[] row) {
+        if (invertAxis) {
+            for (int j = 0; j < row.length; j++) {
+                sheet.getRow(j).createCell(position).setCellValue(row[j]);
+            }
+        } else {
+            Row entryRow = sheet.createRow(position);
+            for (int j = 0; j < row.length; j++) {
+                entryRow.createCell(j).setCellValue(row[j]);
+            }
+        }
+        position++;
+    }
+
+    @Override
+    public void discard() {
+        discarded = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (workbook == null) return;
+        try {
+            if (!discarded) {
+                Path partial = PartialFile.create(outputFile);
+                boolean written = false;
+                try {
+                    try (OutputStream os = Files.newOutputStream(partial)) {
+                        workbook.write(os);
+                    }
+                    PartialFile.commit(partial, outputFile);
+                    written = true;
+                } finally {
+                    if (!written) Files.deleteIfExists(partial);
+                }
+            }
+        } finally {
+            if (workbook instanceof SXSSFWorkbook) ((SXSSFWorkbook) workbook).dispose();
+            workbook.close();
+        }
+    }
+}
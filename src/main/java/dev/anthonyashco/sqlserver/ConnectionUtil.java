@@ -1,37 +1,46 @@
 package dev.anthonyashco.sqlserver;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
+/**
+ * Opens JDBC connections, logging failures instead of throwing. Connection strings are only logged at debug, since
+ * they can carry credentials.
+ */
 public class ConnectionUtil {
+    private static final Logger logger = LogManager.getLogger(ConnectionUtil.class);
+
     public static Connection connect(String connectionString) {
-        System.out.println(connectionString);
+        logger.debug("Connecting to {}", connectionString);
         try {
             return DriverManager.getConnection(connectionString);
         } catch (SQLException e) {
-            e.printStackTrace();
+            logger.error("Failed to connect to the database.", e);
             return null;
         }
     }
 
     public static Connection connect(String connectionString, Properties credentials) {
-        System.out.println(connectionString);
+        logger.debug("Connecting to {}", connectionString);
         try {
             return DriverManager.getConnection(connectionString, credentials);
         } catch (SQLException e) {
-            e.printStackTrace();
+            logger.error("Failed to connect to the database.", e);
             return null;
         }
     }
 
     public static Connection connect(String connectionString, String user, String pass) {
-        System.out.println(connectionString);
+        logger.debug("Connecting to {}", connectionString);
         try {
             return DriverManager.getConnection(connectionString, user, pass);
         } catch (SQLException e) {
-            e.printStackTrace();
+            logger.error("Failed to connect to the database.", e);
             return null;
         }
     }
@@ -0,0 +1,206 @@
+package dev.anthonyashco.sqlserver;
+
+import dev.anthonyashco.metrics.Metrics;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * EnvironmentFanOut runs the same query against several environments from connections.properties at once, each on
+ * its own connection, so the whole run takes as long as the slowest environment rather than the sum of them all.
+ * <p>
+ * Each environment is a property holding its connection string, with optional [environment].user and
+ * [environment].pass properties for drivers that take credentials separately:
+ * <pre>
+ * prod=jdbc:sqlserver://prod-host;databaseName=positions;integratedSecurity=true
+ * qa=jdbc:sqlserver://qa-host;databaseName=positions;integratedSecurity=true
+ * oracle=jdbc:oracle:thin:@oracle-host:1521/positions
+ * oracle.user=reader
+ * oracle.pass=secret
+ * </pre>
+ * Outputs are written as in {@link QueryUtil#executeToCsv(PreparedStatement, String, String) executeToCsv}, with the
+ * environment appended to the file name, e.g. positions_prod.csv and positions_qa.csv.
+ */
+public class EnvironmentFanOut {
+    private static final Logger logger = LogManager.getLogger(EnvironmentFanOut.class);
+    private final Properties prop;
+    private boolean numberedOutput = false;
+    private boolean zaiFormat = false;
+
+    public EnvironmentFanOut() throws IOException {
+        prop = new Properties();
+        try (InputStream is = new FileInputStream("connections.properties")) {
+            prop.load(is);
+        }
+    }
+
+    public EnvironmentFanOut(Properties connections) {
+        prop = connections;
+    }
+
+    /**
+     * See {@link QueryUtil#setNumberedOutput(boolean)}.
+     */
+    public void setNumberedOutput(boolean numberedOutput) {
+        this.numberedOutput = numberedOutput;
+    }
+
+    /**
+     * See {@link QueryUtil#setZai(boolean)}.
+     */
+    public void setZai(boolean zaiFormat) {
+        this.zaiFormat = zaiFormat;
+    }
+
+    /**
+     * Opens a new QueryUtil for the named environment. The caller is responsible for closing it.
+     */
+    public QueryUtil open(String environment) throws SQLException {
+        String connectionString = prop.getProperty(environment);
+        if (connectionString == null || connectionString.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Environment %s absent from connections.properties.", environment));
+        }
+        String user = prop.getProperty(environment + ".user");
+        QueryUtil queryUtil = (user == null || user.isEmpty())
+                ? new QueryUtil(connectionString)
+                : new QueryUtil(connectionString, user, prop.getProperty(environment + ".pass"));
+        if (queryUtil.getConnection() == null) {
+            throw new SQLException(String.format("Failed to connect to environment %s.", environment));
+        }
+        queryUtil.setNumberedOutput(numberedOutput);
+        queryUtil.setZai(zaiFormat);
+        return queryUtil;
+    }
+
+    /**
+     * Runs a query against every given environment concurrently, waiting for all of them to finish. An environment
+     * that fails doesn't stop the others; its error is kept in its result.
+     *
+     * @param outputFilename The base name for the outputs, to which "_[environment]" is appended.
+     * @param args String parameters to inject into the PreparedStatement.
+     * @return The result for each environment, in the order given.
+     */
+    public List<EnvironmentResult> run(Path sqlFile, String outputFilename, String outputExtension, String[] args,
+                                       String... environments) throws InterruptedException {
+        if (environments.length == 0) throw new IllegalArgumentException("No environments given.");
+        if (new HashSet<>(Arrays.asList(environments)).size() != environments.length) {
+            throw new IllegalArgumentException("Each environment may only be given once.");
+        }
+        for (String environment : environments) {
+            String connectionString = prop.getProperty(environment);
+            if (connectionString == null || connectionString.isEmpty()) {
+                throw new IllegalArgumentException(String.format("Environment %s absent from connections.properties.", environment));
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(environments.length);
+        try {
+            List<Future<EnvironmentResult>> futures = new ArrayList<>();
+            for (String environment : environments) {
+                futures.add(executor.submit(() -> execute(environment, sqlFile, outputFilename + "_" + environment,
+                        outputExtension, args)));
+            }
+            List<EnvironmentResult> results = new ArrayList<>();
+            for (Future<EnvironmentResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // execute catches its own failures, so this only happens on an Error.
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            logSummary(results);
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private EnvironmentResult execute(String environment, Path sqlFile, String outputFilename, String outputExtension,
+                                      String[] args) {
+        long started = System.nanoTime();
+        long connected = -1;
+        long rows = 0;
+        Exception error = null;
+        try (QueryUtil queryUtil = open(environment)) {
+            connected = System.nanoTime();
+            try (PreparedStatement ps = queryUtil.getStatement(sqlFile, args)) {
+                rows = queryUtil.executeToCsv(ps, outputFilename, outputExtension);
+            }
+        } catch (Exception e) {
+            logger.error("Query {} failed against {}.", sqlFile.getFileName(), environment, e);
+            error = e;
+        }
+        long finished = System.nanoTime();
+        // A failed connection counts entirely as connect time.
+        if (connected < 0) connected = finished;
+
+        Metrics.time("fanout." + environment + ".connect", connected - started);
+        Metrics.time("fanout." + environment + ".query", finished - connected);
+        Metrics.count("fanout." + environment + ".rows", rows);
+        return new EnvironmentResult(environment, outputFilename, connected - started, finished - connected, rows, error);
+    }
+
+    private static void logSummary(List<EnvironmentResult> results) {
+        long fastest = fastest(results);
+        for (EnvironmentResult result : results) {
+            if (result.isSucceeded()) {
+                logger.info("{}: {} rows in {} ms ({} ms connecting), {}x the fastest.", result.getEnvironment(),
+                        result.getRows(), millis(result.getTotalNanos()), millis(result.getConnectNanos()),
+                        slowdown(result, fastest));
+            } else {
+                logger.info("{}: failed after {} ms.", result.getEnvironment(), millis(result.getTotalNanos()));
+            }
+        }
+    }
+
+    /**
+     * Writes a side-by-side csv report of each environment's row count and timings. Row deltas are relative to the
+     * first environment, and slowdowns to the fastest one that succeeded.
+     */
+    public static void writeReport(List<EnvironmentResult> results, Path reportFile) throws IOException {
+        long fastest = fastest(results);
+        EnvironmentResult baseline = results.isEmpty() ? null : results.get(0);
+        try (CSVPrinter csv = CSVFormat.Builder.create()
+                .setHeader("environment", "status", "rows", "rowDelta", "connectMs", "queryMs", "totalMs", "slowdown", "error")
+                .build().print(Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8))) {
+            for (EnvironmentResult result : results) {
+                boolean comparable = result.isSucceeded() && baseline.isSucceeded();
+                csv.printRecord(result.getEnvironment(),
+                        result.isSucceeded() ? "PASS" : "FAIL",
+                        result.isSucceeded() ? result.getRows() : "",
+                        comparable ? result.getRows() - baseline.getRows() : "",
+                        millis(result.getConnectNanos()),
+                        millis(result.getQueryNanos()),
+                        millis(result.getTotalNanos()),
+                        result.isSucceeded() ? slowdown(result, fastest) : "",
+                        result.isSucceeded() ? "" : String.valueOf(result.getError()));
+            }
+        }
+    }
+
+    private static long fastest(List<EnvironmentResult> results) {
+        long fastest = Long.MAX_VALUE;
+        for (EnvironmentResult result : results) {
+            if (result.isSucceeded()) fastest = Math.min(fastest, result.getTotalNanos());
+        }
+        return fastest;
+    }
+
+    private static String slowdown(EnvironmentResult result, long fastest) {
+        return String.format(Locale.ROOT, "%.2f", (double) result.getTotalNanos() / Math.max(1, fastest));
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
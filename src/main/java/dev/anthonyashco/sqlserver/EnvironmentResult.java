@@ -0,0 +1,71 @@
+package dev.anthonyashco.sqlserver;
+
+/**
+ * EnvironmentResult holds the timings and row count from running a query against one environment with
+ * {@link EnvironmentFanOut}.
+ */
+public class EnvironmentResult {
+    private final String environment;
+    private final String outputFilename;
+    private final long connectNanos;
+    private final long queryNanos;
+    private final long rows;
+    private final Exception error;
+
+    EnvironmentResult(String environment, String outputFilename, long connectNanos, long queryNanos, long rows,
+                      Exception error) {
+        this.environment = environment;
+        this.outputFilename = outputFilename;
+        this.connectNanos = connectNanos;
+        this.queryNanos = queryNanos;
+        this.rows = rows;
+        this.error = error;
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * @return The name the environment's output was written under, without the extension.
+     */
+    public String getOutputFilename() {
+        return outputFilename;
+    }
+
+    /**
+     * @return Time spent opening the connection.
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    /**
+     * @return Time spent preparing and executing the statement and writing its output.
+     */
+    public long getQueryNanos() {
+        return queryNanos;
+    }
+
+    public long getTotalNanos() {
+        return connectNanos + queryNanos;
+    }
+
+    /**
+     * @return The number of rows written, across all result sets.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public boolean isSucceeded() {
+        return error == null;
+    }
+
+    /**
+     * @return Whatever stopped the query, or null if it succeeded.
+     */
+    public Exception getError() {
+        return error;
+    }
+}
@@ -0,0 +1,66 @@
+package dev.anthonyashco.sqlserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * KeyComparison holds the mismatches found by a {@link KeySetVerifier}. Composite keys are joined with commas.
+ */
+public class KeyComparison {
+    private final String table;
+    private final long fileKeys;
+    private final List<String> missing;
+    private final List<String> extra;
+    private final boolean extraChecked;
+
+    KeyComparison(String table, long fileKeys, List<String> missing, List<String> extra, boolean extraChecked) {
+        this.table = table;
+        this.fileKeys = fileKeys;
+        this.missing = Collections.unmodifiableList(missing);
+        this.extra = Collections.unmodifiableList(extra);
+        this.extraChecked = extraChecked;
+    }
+
+    /**
+     * @return The number of keys read from the file, including duplicates.
+     */
+    public long getFileKeys() {
+        return fileKeys;
+    }
+
+    /**
+     * @return Keys in the file that aren't in the table.
+     */
+    public List<String> getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return Keys in the table that aren't in the file. Always empty when checked with parameter lists.
+     */
+    public List<String> getExtra() {
+        return extra;
+    }
+
+    /**
+     * @return Whether extra keys were looked for at all.
+     */
+    public boolean isExtraChecked() {
+        return extraChecked;
+    }
+
+    public boolean isMatched() {
+        return missing.isEmpty() && extra.isEmpty();
+    }
+
+    /**
+     * @return One error message per mismatched key.
+     */
+    public List<String> getErrors() {
+        List<String> errors = new ArrayList<>();
+        for (String key : missing) errors.add(String.format("Key %s absent from table %s.", key, table));
+        for (String key : extra) errors.add(String.format("Key %s in table %s absent from file.", key, table));
+        return errors;
+    }
+}
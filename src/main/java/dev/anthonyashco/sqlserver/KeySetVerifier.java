@@ -0,0 +1,330 @@
+package dev.anthonyashco.sqlserver;
+
+import dev.anthonyashco.metrics.Metrics;
+import dev.anthonyashco.sinks.RowSink;
+import dev.anthonyashco.textutilities.DatParser;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * KeySetVerifier checks that the (composite) keys of a .dat file exist in a database table with a handful of
+ * set-based round trips, rather than one query per key or an export of the whole table.
+ * <p>
+ * Table and column names are written into the SQL as given, so they must come from trusted configuration.
+ */
+public class KeySetVerifier {
+    private static final AtomicInteger tempTableCount = new AtomicInteger();
+    // SQL Server allows at most 2100 parameters per statement.
+    private static final int MAX_PARAMETERS = 2000;
+    private final Connection conn;
+    private final String table;
+    private final String[] tableKeys;
+    private String filter = null;
+    private int batchSize = 1000;
+
+    /**
+     * @param tableKeys The key columns in the table, in the same order as the file headings they're matched against.
+     */
+    public KeySetVerifier(QueryUtil queryUtil, String table, String... tableKeys) {
+        this.conn = queryUtil.getConnection();
+        this.table = table;
+        this.tableKeys = tableKeys;
+    }
+
+    /**
+     * Restricts the table rows considered when looking for extra keys, e.g. "pstn_cyc_id = 202204". Table columns
+     * can be referred to with the alias t.
+     */
+    public void setFilter(String whereClause) {
+        this.filter = whereClause;
+    }
+
+    /**
+     * Sets how many keys are inserted into the temp table per batch.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Loads the file's keys into a session temp table with batched inserts, then finds missing and extra keys with
+     * one anti-join each. The temp table copies the types and collations of the table's key columns, so the joins
+     * compare like with like and can seek on the table's indexes. File keys that can't be stored as those types, e.g.
+     * letters in an int key, are reported as missing.
+     *
+     * @param fileKeys The key headings in the file.
+     */
+    public KeyComparison verifyWithTempTable(DatParser parser, String... fileKeys) throws IOException, SQLException {
+        checkKeyCount(fileKeys);
+        long started = System.nanoTime();
+        String product = conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        String tempTable = tempTableName(product);
+        StringJoiner keyColumns = new StringJoiner(", ");
+        StringJoiner columns = new StringJoiner(", ");
+        StringJoiner parameters = new StringJoiner(", ");
+        for (int i = 0; i < tableKeys.length; i++) {
+            keyColumns.add("t." + tableKeys[i] + " as k" + i);
+            columns.add("k" + i);
+            parameters.add("?");
+        }
+
+        try (Statement st = conn.createStatement()) {
+            st.execute(createTempTable(product, tempTable, keyColumns.toString()));
+        }
+        try {
+            long keys;
+            BatchInsert insert = new BatchInsert(conn.prepareStatement(
+                    "insert into " + tempTable + " (" + columns + ") values (" + parameters + ")"));
+            try {
+                keys = parser.stream(insert, fileKeys);
+            } finally {
+                insert.close();
+            }
+
+            StringJoiner tempColumns = new StringJoiner(", ");
+            StringJoiner tableColumns = new StringJoiner(", ");
+            StringJoiner join = new StringJoiner(" and ");
+            for (int i = 0; i < tableKeys.length; i++) {
+                tempColumns.add("k.k" + i);
+                tableColumns.add("t." + tableKeys[i]);
+                join.add("t." + tableKeys[i] + " = k.k" + i);
+            }
+            List<String> missing = new ArrayList<>(insert.rejected);
+            missing.addAll(selectKeys("select distinct " + tempColumns + " from " + tempTable + " k where not exists "
+                    + "(select 1 from " + table + " t where " + join + ")"));
+            List<String> extra = selectKeys("select distinct " + tableColumns + " from " + table + " t where "
+                    + (filter == null ? "" : "(" + filter + ") and ") + "not exists "
+                    + "(select 1 from " + tempTable + " k where " + join + ")");
+            Metrics.time("keys.tempTable.duration", System.nanoTime() - started);
+            Metrics.count("keys.checked", keys);
+            return new KeyComparison(table, keys, missing, extra, true);
+        } finally {
+            try (Statement st = conn.createStatement()) {
+                st.execute("drop table " + tempTable);
+            }
+        }
+    }
+
+    /**
+     * Looks up the file's keys in chunks of parameter lists, one round trip per chunk, for databases or permissions
+     * where a temp table isn't an option. Only missing keys can be found this way. Keys are compared as strings, so
+     * the table's key columns must render exactly as they appear in the file.
+     *
+     * @param fileKeys The key headings in the file.
+     */
+    public KeyComparison verifyWithParameterLists(DatParser parser, String... fileKeys) throws IOException, SQLException {
+        checkKeyCount(fileKeys);
+        long started = System.nanoTime();
+        ChunkLookup lookup = new ChunkLookup(Math.max(1, Math.min(batchSize, MAX_PARAMETERS / tableKeys.length)));
+        long keys = parser.stream(lookup, fileKeys);
+        lookup.close();
+        Metrics.time("keys.parameterLists.duration", System.nanoTime() - started);
+        Metrics.count("keys.checked", keys);
+        return new KeyComparison(table, keys, lookup.missing, new ArrayList<>(), false);
+    }
+
+    private void checkKeyCount(String[] fileKeys) {
+        if (fileKeys.length != tableKeys.length) {
+            throw new IllegalArgumentException(String.format("%d file keys given for %d table keys.", fileKeys.length, tableKeys.length));
+        }
+    }
+
+    /**
+     * Each database spells a table only this session can see differently.
+     */
+    private static String tempTableName(String product) {
+        String name = "dat_keys_" + tempTableCount.incrementAndGet();
+        if (product.contains("sql server")) return "#" + name;
+        if (product.contains("oracle")) return "ora$ptt_" + name;
+        return name;
+    }
+
+    /**
+     * Creates an empty temp table shaped like the table's key columns.
+     *
+     * @param keyColumns The key columns, aliased k0, k1 and so on.
+     */
+    private String createTempTable(String product, String tempTable, String keyColumns) {
+        // The join stops select into from copying an identity property, which would reject the inserted keys.
+        if (product.contains("sql server")) return "select top 0 " + keyColumns + " into " + tempTable + " from "
+                + table + " t left join (select 1 as x) d on 1 = 0";
+        if (product.contains("oracle")) return "create private temporary table " + tempTable
+                + " on commit preserve definition as select " + keyColumns + " from " + table + " t where 1 = 0";
+        return "create local temporary table " + tempTable + " as select " + keyColumns + " from " + table
+                + " t where 1 = 0";
+    }
+
+    private List<String> selectKeys(String query) throws SQLException {
+        List<String> keys = new ArrayList<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(query)) {
+            while (rs.next()) keys.add(readKey(rs));
+        }
+        return keys;
+    }
+
+    private String readKey(ResultSet rs) throws SQLException {
+        return String.join(",", readKeyParts(rs));
+    }
+
+    private List<String> readKeyParts(ResultSet rs) throws SQLException {
+        List<String> parts = new ArrayList<>(tableKeys.length);
+        for (int i = 1; i <= tableKeys.length; i++) {
+            String part = rs.getString(i);
+            parts.add(part == null ? "#####" : part.trim());
+        }
+        return parts;
+    }
+
+    /**
+     * Streams keys into the temp table, executing a batch every batchSize rows. If a batch is rejected, its keys are
+     * inserted one at a time and those that still fail are set aside as rejected. Keys from the failed batch that did
+     * go in may be inserted twice, which the anti-joins don't mind.
+     */
+    private class BatchInsert implements RowSink {
+        private final PreparedStatement ps;
+        private final List<String[]> pending = new ArrayList<>();
+        private final Set<String> rejected = new LinkedHashSet<>();
+
+        private BatchInsert(PreparedStatement ps) {
+            this.ps = ps;
+        }
+
+        @Override
+        public void open(String[] headers) {
+        }
+
+        @Override
+        public void accept(String[] row) throws IOException {
+            try {
+                for (int i = 0; i < row.length; i++) ps.setString(i + 1, row[i]);
+                ps.addBatch();
+                pending.add(row.clone());
+                if (pending.size() == batchSize) flush();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private void flush() throws SQLException {
+            try {
+                ps.executeBatch();
+            } catch (BatchUpdateException e) {
+                ps.clearBatch();
+                for (String[] row : pending) {
+                    try {
+                        for (int i = 0; i < row.length; i++) ps.setString(i + 1, row[i]);
+                        ps.executeUpdate();
+                    } catch (SQLException rowError) {
+                        rejected.add(String.join(",", row));
+                    }
+                }
+            }
+            pending.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (!pending.isEmpty()) flush();
+                ps.close();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Collects keys into chunks and looks each chunk up with a single parameter-list query. If the database rejects a
+     * chunk, e.g. because a key has letters in it and the column is an int, the chunk is split in half and retried
+     * until the offending keys are found; those are reported as missing, since the table can't hold them.
+     */
+    private class ChunkLookup implements RowSink {
+        private final int chunkSize;
+        private final Set<List<String>> chunk = new LinkedHashSet<>();
+        private final List<String> missing = new ArrayList<>();
+
+        private ChunkLookup(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public void open(String[] headers) {
+        }
+
+        @Override
+        public void accept(String[] row) throws IOException {
+            chunk.add(Arrays.asList(row.clone()));
+            if (chunk.size() == chunkSize) flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!chunk.isEmpty()) flush();
+        }
+
+        private void flush() throws IOException {
+            List<List<String>> keys = new ArrayList<>(chunk);
+            chunk.clear();
+            lookUp(keys);
+        }
+
+        private void lookUp(List<List<String>> keys) throws IOException {
+            Set<List<String>> found;
+            try {
+                found = select(keys);
+            } catch (SQLException e) {
+                if (keys.size() > 1) {
+                    int half = keys.size() / 2;
+                    lookUp(keys.subList(0, half));
+                    lookUp(keys.subList(half, keys.size()));
+                    return;
+                }
+                if (!isConnectionValid()) throw new IOException(e);
+                missing.add(String.join(",", keys.get(0)));
+                return;
+            }
+            for (List<String> key : keys) {
+                if (!found.contains(key)) missing.add(String.join(",", key));
+            }
+        }
+
+        private boolean isConnectionValid() {
+            try {
+                return conn.isValid(5);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private Set<List<String>> select(List<List<String>> keys) throws SQLException {
+            StringJoiner tableColumns = new StringJoiner(", ");
+            for (String tableKey : tableKeys) tableColumns.add(tableKey);
+            StringJoiner predicate = new StringJoiner(" or ");
+            if (tableKeys.length == 1) {
+                StringJoiner parameters = new StringJoiner(", ");
+                for (int i = 0; i < keys.size(); i++) parameters.add("?");
+                predicate.add(tableKeys[0] + " in (" + parameters + ")");
+            } else {
+                StringJoiner match = new StringJoiner(" and ", "(", ")");
+                for (String tableKey : tableKeys) match.add(tableKey + " = ?");
+                for (int i = 0; i < keys.size(); i++) predicate.add(match.toString());
+            }
+
+            Set<List<String>> found = new HashSet<>();
+            try (PreparedStatement ps = conn.prepareStatement("select " + tableColumns + " from " + table
+                    + " where " + predicate)) {
+                int parameter = 1;
+                for (List<String> key : keys) {
+                    for (String part : key) ps.setString(parameter++, part);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) found.add(readKeyParts(rs));
+                }
+            }
+            return found;
+        }
+    }
+}
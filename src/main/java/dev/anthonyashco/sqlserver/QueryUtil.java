@@ -1,10 +1,17 @@
 package dev.anthonyashco.sqlserver;
 
+import dev.anthonyashco.metrics.Metrics;
+import dev.anthonyashco.metrics.QueryEvent;
+import dev.anthonyashco.sinks.RowSink;
+import dev.anthonyashco.textutilities.SnapshotFormat;
+import dev.anthonyashco.textutilities.SnapshotWriter;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.QuoteMode;
+import org.apache.commons.io.output.CountingOutputStream;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -13,14 +20,16 @@ import java.util.Properties;
 import java.util.stream.Collectors;
 
 /**
- * A utility class for handling SQL Server operations.
+ * A utility class for handling SQL Server operations. Queries are read from, and outputs written to, sqlqueries and
+ * csvsource under src/test/resources, or under the directory named by -Ddev.anthonyashco.resources.
  */
-public class QueryUtil {
+public class QueryUtil implements AutoCloseable {
     private final Connection conn;
     private boolean numberedOutput = false;
     private boolean zaiFormat = false;
-    private final Path sqlInput = Paths.get("src", "test", "resources", "sqlqueries");
-    private final Path csvOutput = Paths.get("src", "test", "resources", "csvsource");
+    private final Path resources = Paths.get(System.getProperty("dev.anthonyashco.resources", "src/test/resources"));
+    private final Path sqlInput = resources.resolve("sqlqueries");
+    private final Path csvOutput = resources.resolve("csvsource");
 
     private CSVPrinter getCsvPrinter(String[] headers, Writer fw) throws IOException {
         if (zaiFormat) {
@@ -55,6 +64,10 @@ public class QueryUtil {
         }
     }
 
+    Connection getConnection() {
+        return conn;
+    }
+
     /**
      * If set to true, append a count to the end of the names for output files. If this is set to false and a query
      * outputs multiple times, all but the final output will be overwritten.
@@ -112,21 +125,34 @@ public class QueryUtil {
     }
 
     /**
-     * Executes a PreparedStatement to a csv file.
+     * Executes a PreparedStatement to a csv file. With {@link Metrics} enabled, records time to first row, rows/sec
+     * and bytes written for each result set. Time to first row is measured from when the statement is executed (for
+     * the first result set) or from when the previous result set finished (for the rest).
+     *
+     * @return The number of rows written, across all result sets.
      */
-    public void executeToCsv(PreparedStatement ps, String outputFilename, String outputExtension) throws SQLException, IOException {
+    public long executeToCsv(PreparedStatement ps, String outputFilename, String outputExtension) throws SQLException, IOException {
         Files.createDirectories(csvOutput);
         String outputPath;
         int i = 1;
+        long totalRows = 0;
+        long started = System.nanoTime();
         boolean isResultSet = ps.execute();
 
         while (true) {
             if (isResultSet) {
                 if (numberedOutput) outputPath = String.format(outputFilename + "_%02d." + outputExtension, i);
                 else outputPath = outputFilename + "." + outputExtension;
-                try (BufferedWriter bfw = new BufferedWriter(new FileWriter(csvOutput.resolve(outputPath).toString()))) {
+                CountingOutputStream cos = new CountingOutputStream(new FileOutputStream(csvOutput.resolve(outputPath).toString()));
+                try (BufferedWriter bfw = new BufferedWriter(new OutputStreamWriter(cos, Charset.defaultCharset()))) {
                     ResultSet rs = ps.getResultSet();
                     if (rs != null) {
+                        boolean metrics = Metrics.isEnabled();
+                        QueryEvent event = metrics ? new QueryEvent() : null;
+                        if (metrics) event.begin();
+                        long firstRow = 0;
+                        long rows = 0;
+
                         ResultSetMetaData md = rs.getMetaData();
                         int columns = md.getColumnCount();
                         String[] headers = new String[columns];
@@ -136,16 +162,39 @@ public class QueryUtil {
 
                         CSVPrinter csv = getCsvPrinter(headers, bfw);
                         while (rs.next()) {
+                            if (metrics && rows == 0) firstRow = System.nanoTime();
                             String[] row = new String[columns];
                             for (int k = 1; k <= columns; k++) {
                                 String cell = rs.getString(k);
                                 row[k - 1] = (cell == null) ? "#####" : cell;
                             }
                             csv.printRecord((Object[]) row);
+                            rows++;
                         }
                         rs.close();
+                        totalRows += rows;
+
+                        if (metrics) {
+                            bfw.flush();
+                            long end = System.nanoTime();
+                            long timeToFirstRow = (rows == 0) ? end - started : firstRow - started;
+                            Metrics.time("query.timeToFirstRow", timeToFirstRow);
+                            Metrics.time("query.duration", end - started);
+                            Metrics.count("query.rows", rows);
+                            Metrics.count("query.bytesWritten", cos.getByteCount());
+                            Metrics.observe("query.rowsPerSec", Metrics.perSecond(rows, end - started));
+                            event.end();
+                            if (event.shouldCommit()) {
+                                event.outputFile = outputPath;
+                                event.timeToFirstRow = timeToFirstRow;
+                                event.rows = rows;
+                                event.bytesWritten = cos.getByteCount();
+                                event.commit();
+                            }
+                        }
                     }
                 }
+                started = System.nanoTime();
                 i++;
             } else {
                 if (ps.getUpdateCount() == -1) {
@@ -154,5 +203,110 @@ public class QueryUtil {
             }
             isResultSet = ps.getMoreResults();
         }
+        return totalRows;
+    }
+
+    /**
+     * Executes a PreparedStatement to a columnar binary snapshot instead of a csv file. Snapshots keep column types
+     * and real nulls, are much smaller than csv, and can be read back a few columns at a time, or converted to csv
+     * or xlsx, with {@link dev.anthonyashco.textutilities.SnapshotReader SnapshotReader}. Output files are named as in
+     * {@link #executeToCsv(PreparedStatement, String, String) executeToCsv}, with the extension "snap".
+     */
+    public void executeToSnapshot(PreparedStatement ps, String outputFilename) throws SQLException, IOException {
+        Files.createDirectories(csvOutput);
+        String outputExtension = SnapshotFormat.EXTENSION;
+        String outputPath;
+        int i = 1;
+        boolean isResultSet = ps.execute();
+
+        while (true) {
+            if (isResultSet) {
+                if (numberedOutput) outputPath = String.format(outputFilename + "_%02d." + outputExtension, i);
+                else outputPath = outputFilename + "." + outputExtension;
+                try (ResultSet rs = ps.getResultSet()) {
+                    if (rs != null) {
+                        try (SnapshotWriter snapshot = new SnapshotWriter(csvOutput.resolve(outputPath), rs.getMetaData())) {
+                            while (rs.next()) snapshot.writeRow(rs);
+                            snapshot.finish();
+                        }
+                    }
+                }
+                i++;
+            } else {
+                if (ps.getUpdateCount() == -1) {
+                    break;
+                }
+            }
+            isResultSet = ps.getMoreResults();
+        }
+    }
+
+    /**
+     * Executes a PreparedStatement, streaming the rows of its first result set into a sink instead of a file. Update
+     * counts ahead of the first result set are skipped. If the statement returns no result set, the sink is opened
+     * with no headers and receives no rows.
+     *
+     * @return The number of rows streamed.
+     */
+    public long executeToSink(PreparedStatement ps, RowSink sink) throws SQLException, IOException {
+        boolean metrics = Metrics.isEnabled();
+        QueryEvent event = metrics ? new QueryEvent() : null;
+        if (metrics) event.begin();
+        long started = System.nanoTime();
+        long firstRow = 0;
+        long rows = 0;
+
+        boolean isResultSet = ps.execute();
+        while (!isResultSet && ps.getUpdateCount() != -1) isResultSet = ps.getMoreResults();
+        if (!isResultSet) {
+            sink.open(new String[0]);
+            return 0;
+        }
+
+        try (ResultSet rs = ps.getResultSet()) {
+            ResultSetMetaData md = rs.getMetaData();
+            int columns = md.getColumnCount();
+            String[] headers = new String[columns];
+            for (int j = 1; j <= columns; j++) {
+                headers[j - 1] = md.getColumnLabel(j);
+            }
+            sink.open(headers);
+
+            String[] row = new String[columns];
+            while (rs.next()) {
+                if (metrics && rows == 0) firstRow = System.nanoTime();
+                for (int k = 1; k <= columns; k++) {
+                    String cell = rs.getString(k);
+                    row[k - 1] = (cell == null) ? "#####" : cell;
+                }
+                sink.accept(row);
+                rows++;
+            }
+        }
+
+        if (metrics) {
+            long end = System.nanoTime();
+            long timeToFirstRow = (rows == 0) ? end - started : firstRow - started;
+            Metrics.time("query.timeToFirstRow", timeToFirstRow);
+            Metrics.time("query.duration", end - started);
+            Metrics.count("query.rows", rows);
+            Metrics.observe("query.rowsPerSec", Metrics.perSecond(rows, end - started));
+            event.end();
+            if (event.shouldCommit()) {
+                event.outputFile = sink.getClass().getSimpleName();
+                event.timeToFirstRow = timeToFirstRow;
+                event.rows = rows;
+                event.commit();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Closes the underlying database connection.
+     */
+    @Override
+    public void close() throws SQLException {
+        conn.close();
     }
 }
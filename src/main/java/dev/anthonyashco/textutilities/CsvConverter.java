@@ -1,8 +1,12 @@
 package dev.anthonyashco.textutilities;
 
+import dev.anthonyashco.metrics.ConvertEvent;
+import dev.anthonyashco.metrics.Metrics;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -15,6 +19,8 @@ import java.util.List;
  * A utility class for converting csv output files to other formats for presentation.
  */
 public class CsvConverter {
+    private static final Logger logger = LogManager.getLogger(CsvConverter.class);
+
     /**
      * Transcribes a csv input to a new page in an Excel workbook.
      *
@@ -24,6 +30,13 @@ public class CsvConverter {
      * @param invertAxis Whether to invert the x and y axes when transcribing.
      */
     public static void toXlsx(Workbook workbook, Path inputFile, String sheetName, boolean invertAxis) {
+        ConvertEvent event = null;
+        if (Metrics.isEnabled()) {
+            event = new ConvertEvent();
+            event.begin();
+        }
+        long started = System.nanoTime();
+        long cells = 0;
         try (BufferedReader bfr = new BufferedReader(new FileReader(inputFile.toFile()))) {
             CSVParser csv = CSVFormat.Builder.create(CSVFormat.DEFAULT).setHeader().setSkipHeaderRecord(true).build().parse(bfr);
 
@@ -37,11 +50,13 @@ public class CsvConverter {
                 }
                 columnNumber++;
 
+                cells += headers.size();
                 for (CSVRecord record : csv) {
                     List<String> entries = record.toList();
                     for (int j = 0; j < entries.size(); j++) {
                         sheet.getRow(j).createCell(columnNumber).setCellValue(entries.get(j));
                     }
+                    cells += entries.size();
                     columnNumber++;
                 }
             } else {
@@ -54,16 +69,33 @@ public class CsvConverter {
                     headerRow.createCell(i).setCellValue(headers.get(i));
                 }
 
+                cells += headers.size();
                 for (CSVRecord record : csv) {
                     List<String> entries = record.toList();
                     Row entryRow = sheet.createRow(rowNumber++);
                     for (int j = 0; j < entries.size(); j++) {
                         entryRow.createCell(j).setCellValue(entries.get(j));
                     }
+                    cells += entries.size();
                 }
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            logger.error("Failed to transcribe {} to sheet {}.", inputFile, sheetName, e);
+        }
+
+        if (event != null) {
+            long elapsed = System.nanoTime() - started;
+            Metrics.time("convert.toXlsx.duration", elapsed);
+            Metrics.count("convert.cells", cells);
+            Metrics.observe("convert.cellsPerSec", Metrics.perSecond(cells, elapsed));
+            event.end();
+            if (event.shouldCommit()) {
+                event.inputFile = inputFile.toString();
+                event.sheetName = sheetName;
+                event.inverted = invertAxis;
+                event.cells = cells;
+                event.commit();
+            }
         }
     }
 
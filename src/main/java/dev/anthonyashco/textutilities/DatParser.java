@@ -1,8 +1,14 @@
 package dev.anthonyashco.textutilities;
 
+import dev.anthonyashco.metrics.Metrics;
+import dev.anthonyashco.metrics.ParseEvent;
+import dev.anthonyashco.profiling.ColumnProfiler;
+import dev.anthonyashco.sinks.RowSink;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -10,8 +16,12 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class DatParser {
+    private static final Logger logger = LogManager.getLogger(DatParser.class);
+    private static final int PROFILE_CHUNK_SIZE = 10_000;
+    private static final List<String[]> END_OF_FILE = new ArrayList<>();
     private final CSVFormat csv;
     private final Path inputFile;
     private final char delimiter;
@@ -32,6 +42,34 @@ public class DatParser {
         this.delimiter = ',';
     }
 
+    private static ParseEvent beginParse() {
+        if (!Metrics.isEnabled()) return null;
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records records/sec and rejected records for a pass over the file. Does nothing if metrics were disabled when
+     * the pass began.
+     */
+    private void endParse(ParseEvent event, String operation, long started, long records, long rejected) {
+        if (event == null) return;
+        long elapsed = System.nanoTime() - started;
+        Metrics.time("dat." + operation + ".duration", elapsed);
+        Metrics.count("dat.records", records);
+        Metrics.count("dat.rejected", rejected);
+        Metrics.observe("dat.recordsPerSec", Metrics.perSecond(records, elapsed));
+        event.end();
+        if (event.shouldCommit()) {
+            event.inputFile = inputFile.toString();
+            event.operation = operation;
+            event.records = records;
+            event.rejected = rejected;
+            event.commit();
+        }
+    }
+
     public List<String> verifyDatFields(String... headings) throws IOException {
         try (BufferedReader bfr = new BufferedReader(new FileReader(inputFile.toFile()))) {
             List<String> errors = new ArrayList<>();
@@ -52,26 +90,36 @@ public class DatParser {
     public List<String> verifyDatFieldDataIsValid(String heading, String... validValues) throws IOException {
         List<String> valuesList = Arrays.asList(validValues);
         try (BufferedReader bfr = new BufferedReader(new FileReader(inputFile.toFile()))) {
+            ParseEvent event = beginParse();
+            long started = System.nanoTime();
+            long records = 0;
             List<String> errors = new ArrayList<>();
             CSVParser dat = csv.parse(bfr);
             for (CSVRecord record : dat) {
+                records++;
                 String data = record.get(heading);
                 if (!valuesList.contains(data)) {
                     errors.add(String.format("Record %s:%s in row %d is invalid.", heading, data, record.getRecordNumber()));
                 }
             }
+            endParse(event, "verifyDatFieldDataIsValid", started, records, errors.size());
             return errors;
         }
     }
 
     public Map<String, Map<String, String>> extract(String primaryKey, String... headings) throws IOException {
         try (BufferedReader bfr = new BufferedReader(new FileReader(inputFile.toFile()))) {
+            ParseEvent event = beginParse();
+            long started = System.nanoTime();
+            long records = 0;
+            long rejected = 0;
             Map<String, Map<String, String>> resultMap = new HashMap<>();
             CSVParser dat = csv.parse(bfr);
             if (headings.length == 0) {
                 headings = dat.getHeaderNames().toArray(new String[0]);
             }
             for (CSVRecord record : dat) {
+                records++;
                 try {
                     Map<String, String> entry = new HashMap<>();
                     for (String heading : headings) {
@@ -79,18 +127,25 @@ public class DatParser {
                     }
                     resultMap.put(record.get(primaryKey).trim(), entry);
                 } catch (IllegalArgumentException e) {
-                    System.out.println("Erroneous record skipped: " + record.toString());
+                    rejected++;
+                    logger.warn("Erroneous record skipped: {}", record);
                 }
             }
+            endParse(event, "extract", started, records, rejected);
             return resultMap;
         }
     }
 
     public Map<String, Map<String, String>> extractComposite(String[] compositeKeys, String... headings) throws IOException {
         try (BufferedReader bfr = new BufferedReader(new FileReader(inputFile.toFile()))) {
+            ParseEvent event = beginParse();
+            long started = System.nanoTime();
+            long records = 0;
+            long rejected = 0;
             Map<String, Map<String, String>> resultMap = new HashMap<>();
             CSVParser dat = csv.parse(bfr);
             for (CSVRecord record : dat) {
+                records++;
                 try {
                     Map<String, String> entry = new HashMap<>();
                     List<String> compositeKeyParts = new ArrayList<>();
@@ -102,9 +157,11 @@ public class DatParser {
                     }
                     resultMap.put(String.join(String.valueOf(delimiter), compositeKeyParts), entry);
                 } catch (IllegalArgumentException e){
-                    System.out.println("Erroneous record skipped: " + record.toString());
+                    rejected++;
+                    logger.warn("Erroneous record skipped: {}", record);
                 }
             }
+            endParse(event, "extractComposite", started, records, rejected);
             return resultMap;
         }
     }
@@ -114,6 +171,122 @@ public class DatParser {
         return extractComposite(compositeKeys, headings);
     }
 
+    /**
+     * Streams the given headings of every record into a sink, trimmed as in {@link #extract(String, String...)
+     * extract}, without holding the file in memory. Records missing any of the headings are skipped. The sink is not
+     * closed.
+     *
+     * @return The number of records streamed.
+     */
+    public long stream(RowSink sink, String... headings) throws IOException {
+        try (BufferedReader bfr = new BufferedReader(new FileReader(inputFile.toFile()))) {
+            ParseEvent event = beginParse();
+            long started = System.nanoTime();
+            long records = 0;
+            long rejected = 0;
+            CSVParser dat = csv.parse(bfr);
+            if (headings.length == 0) {
+                headings = dat.getHeaderNames().toArray(new String[0]);
+            }
+            sink.open(headings);
+            String[] row = new String[headings.length];
+            for (CSVRecord record : dat) {
+                records++;
+                try {
+                    for (int i = 0; i < headings.length; i++) {
+                        row[i] = record.get(headings[i]).trim();
+                    }
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                    logger.warn("Erroneous record skipped: {}", record);
+                    continue;
+                }
+                sink.accept(row);
+            }
+            endParse(event, "stream", started, records, rejected);
+            return records - rejected;
+        }
+    }
+
+    /**
+     * Profiles every column of the file in a single pass. With more than one thread, records are parsed on the
+     * calling thread and profiled in chunks by worker threads, whose profiles are merged at the end.
+     */
+    public ColumnProfiler profile(int threads) throws IOException {
+        try (BufferedReader bfr = new BufferedReader(new FileReader(inputFile.toFile()))) {
+            ParseEvent event = beginParse();
+            long started = System.nanoTime();
+            long records = 0;
+            CSVParser dat = csv.parse(bfr);
+            String[] headers = dat.getHeaderNames().toArray(new String[0]);
+
+            ColumnProfiler profiler = new ColumnProfiler();
+            profiler.open(headers);
+            if (threads <= 1) {
+                for (CSVRecord record : dat) {
+                    records++;
+                    profiler.accept(record.toList().toArray(new String[0]));
+                }
+                endParse(event, "profile", started, records, 0);
+                return profiler;
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                // Bounded, so a fast parser can't run ahead of the workers and buffer the whole file.
+                BlockingQueue<List<String[]>> queue = new ArrayBlockingQueue<>(threads * 2);
+                List<Future<ColumnProfiler>> workers = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    workers.add(pool.submit(() -> {
+                        ColumnProfiler chunkProfiler = new ColumnProfiler();
+                        chunkProfiler.open(headers);
+                        List<String[]> chunk;
+                        while ((chunk = queue.take()) != END_OF_FILE) {
+                            for (String[] row : chunk) chunkProfiler.accept(row);
+                        }
+                        return chunkProfiler;
+                    }));
+                }
+
+                List<String[]> chunk = new ArrayList<>(PROFILE_CHUNK_SIZE);
+                for (CSVRecord record : dat) {
+                    records++;
+                    chunk.add(record.toList().toArray(new String[0]));
+                    if (chunk.size() == PROFILE_CHUNK_SIZE) {
+                        handOff(queue, chunk, workers);
+                        chunk = new ArrayList<>(PROFILE_CHUNK_SIZE);
+                    }
+                }
+                if (!chunk.isEmpty()) handOff(queue, chunk, workers);
+                for (int i = 0; i < threads; i++) handOff(queue, END_OF_FILE, workers);
+
+                for (Future<ColumnProfiler> worker : workers) profiler.merge(worker.get());
+                endParse(event, "profile", started, records, 0);
+                return profiler;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while profiling " + inputFile, e);
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to profile " + inputFile, e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Queues a chunk for the profiling workers. Rethrows a worker's failure instead of waiting forever for room in a
+     * queue nobody is taking from.
+     */
+    private static void handOff(BlockingQueue<List<String[]>> queue, List<String[]> chunk,
+                                List<Future<ColumnProfiler>> workers) throws InterruptedException, ExecutionException {
+        do {
+            for (Future<ColumnProfiler> worker : workers) {
+                if (worker.isDone()) worker.get();
+            }
+        } while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS));
+    }
+
     public static void main(String[] args) throws IOException {
         Path file = Paths.get("C:\\Users\\adccj0y\\Downloads\\IALM_TMP_REF_ODM_2022-04.csv");
         DatParser parser = new DatParser(file);
@@ -0,0 +1,134 @@
+package dev.anthonyashco.textutilities;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.time.LocalDate;
+
+/**
+ * SnapshotFormat holds the constants and encoding helpers shared by
+ * {@link SnapshotWriter} and {@link SnapshotReader}.
+ * <p>
+ * A snapshot is a sequence of row chunks, each stored column by column, followed by a footer:
+ * <pre>
+ * magic            8 bytes, "DASNAP1\n"
+ * column chunks    for each chunk, for each column:
+ *                    encoding   1 byte (PLAIN, RLE or DICTIONARY)
+ *                    nulls      (rows + 7) / 8 bytes, bit set where the value is null
+ *                    values     the non-null values in the given encoding
+ * footer           varint column count, then per column: varint-prefixed UTF-8 name, type byte
+ *                  varint chunk count, then per chunk: varint rows, then per column: varint offset, varint length
+ * footer offset    8 bytes, big-endian
+ * </pre>
+ * Longs are zigzag varints (deltas from the previous value when PLAIN), doubles are 8 bytes, and strings are
+ * varint-prefixed UTF-8. RLE stores (varint run length, value) pairs. DICTIONARY stores the distinct strings once,
+ * followed by a varint index per value.
+ */
+public class SnapshotFormat {
+    public static final byte[] MAGIC = "DASNAP1\n".getBytes(StandardCharsets.US_ASCII);
+    public static final String EXTENSION = "snap";
+    public static final String NULL_SENTINEL = "#####";
+
+    /** Whole numbers. */
+    public static final byte LONG = 1;
+    /** 8-byte floating point. */
+    public static final byte DOUBLE = 2;
+    /**
+     * Everything else, exactly as the driver renders them. This includes decimals, bits and timestamps, whose
+     * rendering depends on the driver and the column's scale.
+     */
+    public static final byte STRING = 3;
+    /** Stored as the epoch day. */
+    public static final byte DATE = 4;
+
+    public static final byte PLAIN = 0;
+    public static final byte RLE = 1;
+    public static final byte DICTIONARY = 2;
+
+    /**
+     * Maps a java.sql.Types code from ResultSetMetaData to a snapshot column type.
+     */
+    public static byte typeOf(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return LONG;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+                return DOUBLE;
+            case Types.DATE:
+                return DATE;
+            default:
+                return STRING;
+        }
+    }
+
+    /**
+     * Whether values of the type are stored as longs.
+     */
+    public static boolean isLong(byte type) {
+        return type == LONG || type == DATE;
+    }
+
+    /**
+     * Renders a stored long the way the JDBC driver would render the original value as a string.
+     */
+    public static String render(byte type, long value) {
+        switch (type) {
+            case DATE:
+                return LocalDate.ofEpochDay(value).toString();
+            default:
+                return Long.toString(value);
+        }
+    }
+
+    public static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public static void writeZigzag(ByteArrayOutputStream out, long value) {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static void writeDouble(ByteArrayOutputStream out, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (bits >>> shift));
+    }
+
+    public static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    public static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public static long readZigzag(ByteBuffer in) {
+        long value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
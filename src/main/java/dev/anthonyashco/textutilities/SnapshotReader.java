@@ -0,0 +1,214 @@
+package dev.anthonyashco.textutilities;
+
+import dev.anthonyashco.sinks.CsvSink;
+import dev.anthonyashco.sinks.RowSink;
+import dev.anthonyashco.sinks.XlsxSink;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SnapshotReader reads snapshots written by {@link dev.anthonyashco.sqlserver.QueryUtil#executeToSnapshot
+ * QueryUtil.executeToSnapshot}. Only the requested columns are read from disk, so checking 3 columns of an
+ * 80-column extract costs roughly 3 columns' worth of I/O and decoding.
+ * <p>
+ * Values come back as strings with nulls as "#####", so anything built on {@link RowSink} works unchanged. Strings,
+ * decimals, bits and timestamps are stored exactly as the driver rendered them for executeToCsv. Whole numbers,
+ * floating point numbers and dates are stored natively and rendered in Java's standard form (42, 0.125, 2022-01-01),
+ * which may differ from a driver that renders them some other way.
+ */
+public class SnapshotReader {
+    private final Path inputFile;
+    private final String[] headers;
+    private final byte[] types;
+    private final int[] chunkRows;
+    private final long[][] offsets;
+    private final long[][] lengths;
+    private final long rows;
+
+    public SnapshotReader(Path inputFile) throws IOException {
+        this.inputFile = inputFile;
+        try (FileChannel ch = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer magic = read(ch, 0, SnapshotFormat.MAGIC.length);
+            if (size < SnapshotFormat.MAGIC.length + 8 || !Arrays.equals(magic.array(), SnapshotFormat.MAGIC)) {
+                throw new IOException(String.format("%s is not a snapshot file.", inputFile));
+            }
+            long footerOffset = read(ch, size - 8, 8).getLong();
+            ByteBuffer footer = read(ch, footerOffset, (int) (size - 8 - footerOffset));
+
+            int columns = (int) SnapshotFormat.readVarint(footer);
+            headers = new String[columns];
+            types = new byte[columns];
+            for (int i = 0; i < columns; i++) {
+                headers[i] = SnapshotFormat.readString(footer);
+                types[i] = footer.get();
+            }
+            int chunks = (int) SnapshotFormat.readVarint(footer);
+            chunkRows = new int[chunks];
+            offsets = new long[chunks][columns];
+            lengths = new long[chunks][columns];
+            long total = 0;
+            for (int c = 0; c < chunks; c++) {
+                chunkRows[c] = (int) SnapshotFormat.readVarint(footer);
+                total += chunkRows[c];
+                for (int i = 0; i < columns; i++) {
+                    offsets[c][i] = SnapshotFormat.readVarint(footer);
+                    lengths[c][i] = SnapshotFormat.readVarint(footer);
+                }
+            }
+            rows = total;
+        }
+    }
+
+    public List<String> getHeaders() {
+        return Collections.unmodifiableList(Arrays.asList(headers));
+    }
+
+    /**
+     * @return The column's type, one of the type constants in {@link SnapshotFormat}.
+     */
+    public byte getType(String heading) {
+        return types[indexOf(heading)];
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Streams the given columns of every row into a sink. The sink is not closed.
+     *
+     * @param headings The columns to read, in the order they should appear. Reads every column if none are given.
+     * @return The number of rows streamed.
+     */
+    public long read(RowSink sink, String... headings) throws IOException {
+        int[] projection = new int[headings.length == 0 ? headers.length : headings.length];
+        String[] projectedHeaders = new String[projection.length];
+        for (int p = 0; p < projection.length; p++) {
+            projection[p] = (headings.length == 0) ? p : indexOf(headings[p]);
+            projectedHeaders[p] = headers[projection[p]];
+        }
+        sink.open(projectedHeaders);
+
+        try (FileChannel ch = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            String[][] values = new String[projection.length][];
+            String[] row = new String[projection.length];
+            for (int c = 0; c < chunkRows.length; c++) {
+                for (int p = 0; p < projection.length; p++) {
+                    int column = projection[p];
+                    ByteBuffer chunk = read(ch, offsets[c][column], (int) lengths[c][column]);
+                    values[p] = decode(chunk, types[column], chunkRows[c]);
+                }
+                for (int r = 0; r < chunkRows[c]; r++) {
+                    for (int p = 0; p < projection.length; p++) row[p] = values[p][r];
+                    sink.accept(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Converts the snapshot, or just the given columns, to a csv file in the same format as executeToCsv.
+     */
+    public void toCsv(Path outputFile, String... headings) throws IOException {
+        try (CsvSink sink = new CsvSink(outputFile)) {
+            convert(sink, headings);
+        }
+    }
+
+    /**
+     * Converts the snapshot, or just the given columns, to a single-sheet Excel workbook.
+     *
+     * @param invertAxis Whether to invert the x and y axes when transcribing.
+     */
+    public void toXlsx(Path outputFile, String sheetName, boolean invertAxis, String... headings) throws IOException {
+        try (XlsxSink sink = new XlsxSink(outputFile, sheetName, invertAxis)) {
+            convert(sink, headings);
+        }
+    }
+
+    private void convert(RowSink sink, String... headings) throws IOException {
+        try {
+            read(sink, headings);
+        } catch (IOException | RuntimeException e) {
+            // Keep any earlier output rather than replacing it with a partial one.
+            sink.discard();
+            throw e;
+        }
+    }
+
+    private int indexOf(String heading) {
+        for (int i = 0; i < headers.length; i++) {
+            if (headers[i].equals(heading)) return i;
+        }
+        throw new IllegalArgumentException(String.format("Heading %s absent from file.", heading));
+    }
+
+    private static ByteBuffer read(FileChannel ch, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (ch.read(buffer, position + buffer.position()) < 0) throw new EOFException("Snapshot file is truncated.");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String[] decode(ByteBuffer in, byte type, int rows) {
+        String[] values = new String[rows];
+        byte encoding = in.get();
+        byte[] bitmap = new byte[(rows + 7) / 8];
+        in.get(bitmap);
+
+        String[] dictionary = null;
+        if (encoding == SnapshotFormat.DICTIONARY) {
+            dictionary = new String[(int) SnapshotFormat.readVarint(in)];
+            for (int d = 0; d < dictionary.length; d++) dictionary[d] = SnapshotFormat.readString(in);
+        }
+
+        long previous = 0;
+        long run = 0;
+        String current = null;
+        for (int r = 0; r < rows; r++) {
+            if ((bitmap[r >>> 3] & (1 << (r & 7))) != 0) {
+                values[r] = SnapshotFormat.NULL_SENTINEL;
+                continue;
+            }
+            switch (encoding) {
+                case SnapshotFormat.DICTIONARY:
+                    values[r] = dictionary[(int) SnapshotFormat.readVarint(in)];
+                    break;
+                case SnapshotFormat.RLE:
+                    if (run == 0) {
+                        run = SnapshotFormat.readVarint(in);
+                        current = readValue(in, type);
+                    }
+                    values[r] = current;
+                    run--;
+                    break;
+                default:
+                    if (SnapshotFormat.isLong(type)) {
+                        previous += SnapshotFormat.readZigzag(in);
+                        values[r] = SnapshotFormat.render(type, previous);
+                    } else {
+                        values[r] = readValue(in, type);
+                    }
+            }
+        }
+        return values;
+    }
+
+    private static String readValue(ByteBuffer in, byte type) {
+        if (SnapshotFormat.isLong(type)) return SnapshotFormat.render(type, SnapshotFormat.readZigzag(in));
+        if (type == SnapshotFormat.DOUBLE) return Double.toString(in.getDouble());
+        return SnapshotFormat.readString(in);
+    }
+}
@@ -0,0 +1,256 @@
+package dev.anthonyashco.textutilities;
+
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * SnapshotWriter writes a ResultSet to the columnar binary format described in {@link SnapshotFormat}, typed from
+ * the ResultSetMetaData. Rows are buffered one chunk at a time, so memory use doesn't grow with the result set.
+ * <p>
+ * Call {@link #finish()} once every row is written. Closing without it deletes the file instead of leaving a
+ * truncated snapshot that would read back as complete.
+ */
+public class SnapshotWriter implements Closeable {
+    public static final int DEFAULT_CHUNK_ROWS = 65_536;
+    private final Path outputFile;
+    private final OutputStream out;
+    private final String[] headers;
+    private final byte[] types;
+    private final int chunkRows;
+    private final List<Integer> chunkSizes = new ArrayList<>();
+    private final List<long[]> chunkOffsets = new ArrayList<>();
+    private final List<long[]> chunkLengths = new ArrayList<>();
+    private final boolean[][] nulls;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final String[][] strings;
+    private long position = 0;
+    private int rows = 0;
+    private boolean finished = false;
+
+    public SnapshotWriter(Path outputFile, ResultSetMetaData md) throws IOException, SQLException {
+        this(outputFile, md, DEFAULT_CHUNK_ROWS);
+    }
+
+    public SnapshotWriter(Path outputFile, ResultSetMetaData md, int chunkRows) throws IOException, SQLException {
+        int columns = md.getColumnCount();
+        this.headers = new String[columns];
+        this.types = new byte[columns];
+        this.chunkRows = chunkRows;
+        this.nulls = new boolean[columns][];
+        this.longs = new long[columns][];
+        this.doubles = new double[columns][];
+        this.strings = new String[columns][];
+        for (int i = 0; i < columns; i++) {
+            headers[i] = md.getColumnLabel(i + 1);
+            types[i] = SnapshotFormat.typeOf(md.getColumnType(i + 1));
+            nulls[i] = new boolean[chunkRows];
+            if (SnapshotFormat.isLong(types[i])) longs[i] = new long[chunkRows];
+            else if (types[i] == SnapshotFormat.DOUBLE) doubles[i] = new double[chunkRows];
+            else strings[i] = new String[chunkRows];
+        }
+        this.outputFile = outputFile;
+        out = new BufferedOutputStream(Files.newOutputStream(outputFile), 1 << 16);
+        write(SnapshotFormat.MAGIC);
+    }
+
+    /**
+     * Adds the ResultSet's current row.
+     */
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        for (int i = 0; i < types.length; i++) {
+            int column = i + 1;
+            switch (types[i]) {
+                case SnapshotFormat.LONG:
+                    longs[i][rows] = rs.getLong(column);
+                    nulls[i][rows] = rs.wasNull();
+                    break;
+                case SnapshotFormat.DOUBLE:
+                    doubles[i][rows] = rs.getDouble(column);
+                    nulls[i][rows] = rs.wasNull();
+                    break;
+                case SnapshotFormat.DATE:
+                    java.sql.Date date = rs.getDate(column);
+                    nulls[i][rows] = (date == null);
+                    if (date != null) longs[i][rows] = date.toLocalDate().toEpochDay();
+                    break;
+                default:
+                    strings[i][rows] = rs.getString(column);
+                    nulls[i][rows] = (strings[i][rows] == null);
+            }
+        }
+        if (++rows == chunkRows) flushChunk();
+    }
+
+    private void flushChunk() throws IOException {
+        if (rows == 0) return;
+        long[] offsets = new long[types.length];
+        long[] lengths = new long[types.length];
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(rows * 4);
+        for (int i = 0; i < types.length; i++) {
+            buffer.reset();
+            encodeColumn(buffer, i);
+            offsets[i] = position;
+            lengths[i] = buffer.size();
+            buffer.writeTo(out);
+            position += buffer.size();
+        }
+        chunkSizes.add(rows);
+        chunkOffsets.add(offsets);
+        chunkLengths.add(lengths);
+        for (String[] column : strings) {
+            if (column != null) Arrays.fill(column, 0, rows, null);
+        }
+        rows = 0;
+    }
+
+    private void encodeColumn(ByteArrayOutputStream buffer, int i) {
+        boolean[] isNull = nulls[i];
+        byte[] bitmap = new byte[(rows + 7) / 8];
+        int present = 0;
+        int runs = 0;
+        for (int r = 0; r < rows; r++) {
+            if (isNull[r]) {
+                bitmap[r >>> 3] |= (byte) (1 << (r & 7));
+            } else {
+                if (present == 0 || !sameAsPrevious(i, r)) runs++;
+                present++;
+            }
+        }
+
+        // Runs are worth it when they at least halve the number of values written.
+        boolean rle = runs * 2 <= present;
+        Map<String, Integer> dictionary = null;
+        if (!rle && strings[i] != null) dictionary = buildDictionary(i, present);
+        byte encoding = rle ? SnapshotFormat.RLE : (dictionary != null ? SnapshotFormat.DICTIONARY : SnapshotFormat.PLAIN);
+        buffer.write(encoding);
+        buffer.write(bitmap, 0, bitmap.length);
+
+        if (dictionary != null) {
+            SnapshotFormat.writeVarint(buffer, dictionary.size());
+            for (String value : dictionary.keySet()) SnapshotFormat.writeString(buffer, value);
+            for (int r = 0; r < rows; r++) {
+                if (!isNull[r]) SnapshotFormat.writeVarint(buffer, dictionary.get(strings[i][r]));
+            }
+            return;
+        }
+
+        long previous = 0;
+        int r = 0;
+        while (r < rows) {
+            if (isNull[r]) {
+                r++;
+                continue;
+            }
+            if (rle) {
+                int run = 1;
+                int next = r + 1;
+                while (next < rows && (isNull[next] || sameAs(i, next, r))) {
+                    if (!isNull[next]) run++;
+                    next++;
+                }
+                SnapshotFormat.writeVarint(buffer, run);
+                writeValue(buffer, i, r);
+                r = next;
+            } else {
+                if (longs[i] != null) {
+                    SnapshotFormat.writeZigzag(buffer, longs[i][r] - previous);
+                    previous = longs[i][r];
+                } else {
+                    writeValue(buffer, i, r);
+                }
+                r++;
+            }
+        }
+    }
+
+    /**
+     * Returns a dictionary of the distinct values, in first-seen order, if it would at least halve the number of
+     * strings written; otherwise null.
+     */
+    private Map<String, Integer> buildDictionary(int i, int present) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (int r = 0; r < rows; r++) {
+            if (nulls[i][r]) continue;
+            if (dictionary.putIfAbsent(strings[i][r], dictionary.size()) == null && dictionary.size() * 2 > present) {
+                return null;
+            }
+        }
+        return dictionary;
+    }
+
+    private void writeValue(ByteArrayOutputStream buffer, int i, int r) {
+        if (longs[i] != null) SnapshotFormat.writeZigzag(buffer, longs[i][r]);
+        else if (doubles[i] != null) SnapshotFormat.writeDouble(buffer, doubles[i][r]);
+        else SnapshotFormat.writeString(buffer, strings[i][r]);
+    }
+
+    /**
+     * Whether row r repeats the most recent non-null value before it.
+     */
+    private boolean sameAsPrevious(int i, int r) {
+        int previous = r - 1;
+        while (nulls[i][previous]) previous--;
+        return sameAs(i, r, previous);
+    }
+
+    private boolean sameAs(int i, int a, int b) {
+        if (longs[i] != null) return longs[i][a] == longs[i][b];
+        if (doubles[i] != null) return Double.doubleToRawLongBits(doubles[i][a]) == Double.doubleToRawLongBits(doubles[i][b]);
+        return strings[i][a].equals(strings[i][b]);
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    /**
+     * Marks every row as written, so that closing completes the snapshot.
+     */
+    public void finish() {
+        finished = true;
+    }
+
+    /**
+     * Writes the final chunk and the footer if {@link #finish()} was called, or deletes the partial file if not.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(outputFile);
+            }
+            return;
+        }
+        try {
+            flushChunk();
+            long footerOffset = position;
+            ByteArrayOutputStream footer = new ByteArrayOutputStream();
+            SnapshotFormat.writeVarint(footer, headers.length);
+            for (int i = 0; i < headers.length; i++) {
+                SnapshotFormat.writeString(footer, headers[i]);
+                footer.write(types[i]);
+            }
+            SnapshotFormat.writeVarint(footer, chunkSizes.size());
+            for (int c = 0; c < chunkSizes.size(); c++) {
+                SnapshotFormat.writeVarint(footer, chunkSizes.get(c));
+                for (int i = 0; i < headers.length; i++) {
+                    SnapshotFormat.writeVarint(footer, chunkOffsets.get(c)[i]);
+                    SnapshotFormat.writeVarint(footer, chunkLengths.get(c)[i]);
+                }
+            }
+            write(footer.toByteArray());
+            write(ByteBuffer.allocate(8).putLong(footerOffset).array());
+        } finally {
+            out.close();
+        }
+    }
+}